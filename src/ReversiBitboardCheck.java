@@ -0,0 +1,66 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import src.gameframework.MoveList;
+import src.gamemodules.reversigame.ReversiBitboard;
+import src.gamemodules.reversigame.ReversiBoardLogic;
+import src.gamemodules.reversigame.ReversiGameLogic;
+import src.gamemodules.reversigame.ReversiSearchPosition;
+
+/**
+ * Plays random games of reversi and checks that the bitboard search position finds the same moves, flips the same
+ * discs and has the same hash as ReversiGameLogic in every position. The amount of games can be passed as argument.
+ */
+public class ReversiBitboardCheck {
+
+    public static void main(String[] args){
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Random random = new Random(1);
+        int positions = 0;
+
+        for(int game = 0; game < games; game++){
+            ReversiBoardLogic board = new ReversiBoardLogic();
+            ReversiGameLogic logic = new ReversiGameLogic();
+            logic.setBoard(board);
+            ReversiSearchPosition position = new ReversiSearchPosition(board, 2);
+            MoveList moves = new MoveList();
+
+            int turn = 2;
+            while(logic.gameOver() == 0){
+                positions++;
+                ArrayList<Integer> expected = logic.getMoves(turn);
+                position.generateMoves(moves);
+                check(moves.size() == expected.size(), "move count", game, board);
+                for(int i = 0; i < moves.size(); i++){
+                    check(expected.get(i) == moves.get(i), "moves", game, board);
+                }
+                check(position.hash() == board.hash(turn), "hash", game, board);
+                check(position.getDiscs(1) == ReversiBitboard.fromBoard(board, 1)
+                        && position.getDiscs(2) == ReversiBitboard.fromBoard(board, 2), "discs", game, board);
+
+                int move = ReversiSearchPosition.PASS;
+                if(!expected.isEmpty()){
+                    move = expected.get(random.nextInt(expected.size()));
+                    logic.doMove(move, turn);
+                }
+                position.doMove(move);
+                turn = 3 - turn;
+            }
+        }
+
+        System.out.println("Checked " + positions + " positions in " + games + " games, all moves are the same.");
+    }
+
+    /**
+     * This method stops the check when the bitboard position doesn't match the board.
+     */
+    private static void check(boolean same, String what, int game, ReversiBoardLogic board){
+        if(!same){
+            System.err.println("Different " + what + " in game " + game + ":");
+            board.printBoard();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import src.gameframework.MoveList;
+import src.gameframework.SearchLimits;
+import src.gameframework.aistrategies.ParallelNegamaxSearch;
+import src.gameframework.aistrategies.SearchPosition;
+import src.gameframework.aistrategies.SearchResult;
+import src.gameframework.aistrategies.TranspositionTable;
+import src.gamemodules.reversigame.ReversiBoardLogic;
+import src.gamemodules.reversigame.ReversiOpeningBook;
+import src.gamemodules.reversigame.ReversiSearchPosition;
+
+/**
+ * Builds an opening book for reversi, see ReversiOpeningBook. Every position that can be reached in the first moves
+ * of a game is searched deeply and its best move is written to the book. Positions that can be reached by different
+ * orders of moves have the same hash, so they are only searched once.
+ *
+ * Arguments: the amount of moves from the start (default 4), the search depth (default 9) and the book file
+ * (default reversi.book).
+ */
+public class ReversiBookBuilder {
+
+    public static void main(String[] args) throws IOException {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+        Path file = Paths.get(args.length > 2 ? args[2] : "reversi.book");
+
+        // Find all positions in the first moves of the game, positions where the player has to pass are left out.
+        List<SearchPosition> positions = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        List<SearchPosition> current = new ArrayList<>();
+        current.add(new ReversiSearchPosition(new ReversiBoardLogic(), 2));
+        MoveList moves = new MoveList();
+        for(int ply = 0; ply <= plies; ply++){
+            List<SearchPosition> next = new ArrayList<>();
+            for(SearchPosition position : current){
+                position.generateMoves(moves);
+                if(moves.size() == 0 || !seen.add(position.hash())){
+                    continue;
+                }
+                positions.add(position);
+                for(int i = 0; i < moves.size(); i++){
+                    SearchPosition child = position.copy();
+                    child.doMove(moves.get(i));
+                    next.add(child);
+                }
+            }
+            current = next;
+        }
+        System.out.println("Searching " + positions.size() + " positions to depth " + depth);
+
+        // The table is kept between positions, the positions have a lot of the same subtrees.
+        ForkJoinPool pool = new ForkJoinPool();
+        TranspositionTable table = new TranspositionTable(64);
+        SortedMap<Long, ReversiOpeningBook.Entry> entries = new TreeMap<>();
+        long start = System.currentTimeMillis();
+        for(SearchPosition position : positions){
+            table.newSearch();
+            SearchResult result = new ParallelNegamaxSearch(pool, table, new SearchLimits())
+                    .search(position, depth);
+            entries.put(position.hash(), new ReversiOpeningBook.Entry(result.getMove(), depth, result.getScore()));
+            if(entries.size() % 100 == 0){
+                System.out.println(entries.size() + " positions done in "
+                        + (System.currentTimeMillis() - start) / 1000 + " seconds");
+            }
+        }
+        pool.shutdown();
+
+        ReversiOpeningBook.write(file, entries);
+        System.out.println("Wrote " + entries.size() + " positions to " + file);
+    }
+}
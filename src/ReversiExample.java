@@ -1,11 +1,21 @@
 package src;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Random;
 
+import src.gameframework.aistrategies.EvaluationCache;
+import src.gameframework.aistrategies.MultiProbCut;
 import src.gamemodules.reversigame.ReversiBoardLogic;
 import src.gamemodules.reversigame.ReversiGameLogic;
 import src.gamemodules.reversigame.ReversiMinimaxStrategy;
+import src.gamemodules.reversigame.ReversiNeuralEvaluator;
+import src.gamemodules.reversigame.ReversiOpeningBook;
+import src.gamemodules.reversigame.ReversiPatternEvaluator;
+import src.gamemodules.reversigame.ReversiSearchPosition;
 
 public class ReversiExample {
 
@@ -25,6 +35,54 @@ public class ReversiExample {
         this.logic = new ReversiGameLogic();
         logic.setBoard(board);
         this.ai = new ReversiMinimaxStrategy();
+
+        // Use the opening book when it has been built, see ReversiBookBuilder.
+        Path book = Paths.get("reversi.book");
+        if(Files.exists(book)){
+            try {
+                ai.setOpeningBook(ReversiOpeningBook.open(book));
+            } catch(IOException e){
+                System.err.println("Could not open the opening book : " + e.getMessage());
+            }
+        }
+
+        // Evaluate with pattern tables when trained weights are available.
+        Path weights = Paths.get("reversi.weights");
+        if(Files.exists(weights)){
+            try {
+                ai.setPatternEvaluator(ReversiPatternEvaluator.load(weights));
+            } catch(IOException e){
+                System.err.println("Could not load the pattern weights : " + e.getMessage());
+            }
+        }
+
+        // A trained neural network replaces the other evaluations.
+        Path network = Paths.get("reversi.network");
+        if(Files.exists(network)){
+            try {
+                ai.setNeuralEvaluator(ReversiNeuralEvaluator.load(network));
+            } catch(IOException e){
+                System.err.println("Could not load the neural network : " + e.getMessage());
+            }
+        }
+
+        // Prune the search selectively when it has been calibrated for the evaluation that is used, see
+        // ReversiProbCutCalibrator. The calibrator can't calibrate for the neural network.
+        Path probCut = Paths.get("reversi.probcut");
+        if(Files.exists(probCut) && ai.getNeuralEvaluator() == null){
+            try {
+                MultiProbCut parameters = MultiProbCut.load(probCut);
+                ReversiPatternEvaluator evaluator = ai.getPatternEvaluator();
+                long evaluation = evaluator != null ? evaluator.getChecksum() : 0;
+                if(parameters.getEvaluation() == evaluation){
+                    ai.setMultiProbCut(parameters);
+                } else {
+                    System.err.println("The probcut parameters were calibrated for another evaluation : " + probCut);
+                }
+            } catch(IOException e){
+                System.err.println("Could not load the probcut parameters : " + e.getMessage());
+            }
+        }
     }
 
     private void play(){
@@ -36,6 +94,7 @@ public class ReversiExample {
         this.board.printBoard();
 
         int turn = 2;
+        int expectedMove = -1;
         while(logic.gameOver() == 0){
             ArrayList<Integer> moves = logic.getMoves(turn);
 
@@ -46,10 +105,24 @@ public class ReversiExample {
                     : moves.get(random.nextInt(moves.size()));
             }
 
+            // The AI thinks on the time of player 1, that work is only used when player 1 makes the expected move.
+            if(turn == 1){
+                if(move != -1 && move == expectedMove){
+                    ai.ponderHit();
+                } else {
+                    ai.ponderMiss();
+                }
+            }
+
             if(move != -1){
                 logic.doMove(move, turn);
             }
 
+            if(turn == 2){
+                expectedMove = ai.getPonderMove();
+                ai.startPonder(board, turn, expectedMove);
+            }
+
             System.out.println("Player " + turn + " did move " + move);
             board.printBoard();
 
@@ -69,5 +142,16 @@ public class ReversiExample {
                 break;
         }
         System.out.println("The AI ended the game with " + logic.getDiscCount(2) + " stones.");
+
+        long lazy = ReversiSearchPosition.getLazyEvaluations();
+        long total = lazy + ReversiSearchPosition.getFullEvaluations();
+        if(total > 0){
+            System.out.println("Stability was skipped in " + lazy * 100 / total + "% of " + total + " evaluations.");
+        }
+        EvaluationCache cache = ai.getEvaluationCache();
+        if(cache != null && cache.getHits() + cache.getMisses() > 0){
+            long lookups = cache.getHits() + cache.getMisses();
+            System.out.println("The evaluation cache had " + cache.getHits() * 100 / lookups + "% hits.");
+        }
     }
 }
@@ -0,0 +1,180 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import src.gameframework.MoveList;
+import src.gameframework.aistrategies.MultiProbCut;
+import src.gameframework.aistrategies.NegamaxSearch;
+import src.gameframework.aistrategies.SearchPosition;
+import src.gameframework.aistrategies.TranspositionTable;
+import src.gamemodules.reversigame.ReversiBoardLogic;
+import src.gamemodules.reversigame.ReversiPatternEvaluator;
+import src.gamemodules.reversigame.ReversiSearchPosition;
+
+/**
+ * Calibrates Multi-ProbCut for reversi, see MultiProbCut. Positions are taken from games the AI plays against
+ * itself with some random moves, and every position is searched to every depth. For every phase of the game and
+ * every depth, a linear regression of the deep scores on the shallow scores gives the prediction and the standard
+ * deviation of its error. Phases with too few positions are not pruned, near the end of the game the endgame
+ * solver takes over anyway.
+ *
+ * Arguments: the amount of games (default 20), the deepest depth (default 8), the parameter file (default
+ * reversi.probcut), the weights file of the pattern evaluation the parameters are for (default none, the
+ * evaluation with stability, mobility and corners) and the seed of the random moves (default 1). The same arguments
+ * always give the same parameters.
+ */
+public class ReversiProbCutCalibrator {
+
+    // Chance of a random move in the games, so the positions are not all alike.
+    private static final double RANDOM_MOVES = 0.3;
+
+    // Depth of the search that picks the other moves of the games.
+    private static final int GAME_DEPTH = 2;
+
+    // Least amount of positions for a regression of one phase.
+    private static final int MIN_SAMPLES = 30;
+
+    // Scores from here on are won or lost games, they would spoil the regression.
+    private static final int MAX_SCORE = 4000;
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        Path file = Paths.get(args.length > 2 ? args[2] : "reversi.probcut");
+        ReversiPatternEvaluator evaluator = args.length > 3 ? ReversiPatternEvaluator.load(Paths.get(args[3])) : null;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        List<SearchPosition> positions = playGames(games, evaluator, seed);
+        System.out.println("Searching " + positions.size() + " positions to depth " + maxDepth);
+
+        // Scores of every position at every depth, the table is cleared for every position so the shallow searches
+        // don't get scores of deeper ones.
+        TranspositionTable table = new TranspositionTable(16);
+        int[][] scores = new int[positions.size()][maxDepth + 1];
+        long start = System.currentTimeMillis();
+        for(int i = 0; i < positions.size(); i++){
+            for(int depth = 1; depth <= maxDepth; depth++){
+                table.clear();
+                scores[i][depth] = new NegamaxSearch(positions.get(i).copy(), table).search(depth).getScore();
+            }
+            if((i + 1) % 100 == 0){
+                System.out.println((i + 1) + " positions done in "
+                        + (System.currentTimeMillis() - start) / 1000 + " seconds");
+            }
+        }
+
+        int phases = ReversiPatternEvaluator.PHASES;
+        MultiProbCut probCut = new MultiProbCut(phases, maxDepth);
+        probCut.setEvaluation(evaluator != null ? evaluator.getChecksum() : 0);
+        System.out.println("phase depth shallow  slope  offset  deviation  positions");
+        for(int depth = MultiProbCut.MIN_DEPTH; depth <= maxDepth; depth++){
+            int shallow = MultiProbCut.getShallowDepth(depth);
+            Regression[] byPhase = new Regression[phases];
+            for(int phase = 0; phase < phases; phase++){
+                byPhase[phase] = new Regression();
+            }
+            for(int i = 0; i < positions.size(); i++){
+                int x = scores[i][shallow];
+                int y = scores[i][depth];
+                if(Math.abs(x) < MAX_SCORE && Math.abs(y) < MAX_SCORE){
+                    byPhase[positions.get(i).getPhase()].add(x, y);
+                }
+            }
+            for(int phase = 0; phase < phases; phase++){
+                Regression regression = byPhase[phase];
+                if(regression.count < MIN_SAMPLES){
+                    continue;
+                }
+                regression.solve();
+                probCut.set(phase, depth, (float) regression.slope, (float) regression.offset,
+                        (float) regression.deviation);
+                System.out.println(String.format("%5d %5d %7d %6.3f %7.2f %10.2f %10d", phase, depth, shallow,
+                        regression.slope, regression.offset, regression.deviation, regression.count));
+            }
+        }
+
+        probCut.save(file);
+        System.out.println("Wrote the parameters to " + file);
+    }
+
+    /**
+     * This method plays games and returns every position of them where the player to move has a move.
+     */
+    private static List<SearchPosition> playGames(int games, ReversiPatternEvaluator evaluator, long seed){
+        Random random = new Random(seed);
+        TranspositionTable table = new TranspositionTable(16);
+        MoveList moves = new MoveList();
+        List<SearchPosition> positions = new ArrayList<>();
+        for(int game = 0; game < games; game++){
+            SearchPosition position = new ReversiSearchPosition(new ReversiBoardLogic(), 2, evaluator);
+            boolean passed = false;
+            while(true){
+                position.generateMoves(moves);
+                if(moves.isEmpty()){
+                    if(passed){
+                        break;
+                    }
+                    passed = true;
+                    position.doMove(SearchPosition.PASS);
+                    continue;
+                }
+                passed = false;
+                positions.add(position.copy());
+
+                int move;
+                if(random.nextDouble() < RANDOM_MOVES){
+                    move = moves.get(random.nextInt(moves.size()));
+                } else {
+                    table.newSearch();
+                    move = new NegamaxSearch(position.copy(), table).search(GAME_DEPTH).getMove();
+                }
+                position.doMove(move);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Least squares regression of y on x.
+     */
+    private static class Regression {
+
+        private int count;
+        private double sumX;
+        private double sumY;
+        private double sumXX;
+        private double sumXY;
+        private double sumYY;
+
+        private double slope;
+        private double offset;
+        private double deviation;
+
+        void add(double x, double y){
+            count++;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+            sumYY += y * y;
+        }
+
+        /**
+         * This method computes the slope and offset with the least squared error, and the standard deviation of
+         * the error.
+         */
+        void solve(){
+            double varianceX = sumXX - sumX * sumX / count;
+            slope = varianceX > 0 ? (sumXY - sumX * sumY / count) / varianceX : 1;
+            offset = (sumY - slope * sumX) / count;
+            double squaredError = sumYY - 2 * slope * sumXY - 2 * offset * sumY + slope * slope * sumXX
+                    + 2 * slope * offset * sumX + count * offset * offset;
+            deviation = Math.sqrt(Math.max(squaredError, 0) / Math.max(count - 2, 1));
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import src.gameframework.MoveList;
+import src.gameframework.aistrategies.NegamaxSearch;
+import src.gameframework.aistrategies.SearchPosition;
+import src.gameframework.aistrategies.TranspositionTable;
+import src.gamemodules.reversigame.ReversiBoardLogic;
+import src.gamemodules.reversigame.ReversiPatternEvaluator;
+import src.gamemodules.reversigame.ReversiSearchPosition;
+
+/**
+ * Tunes the weights of the pattern evaluation of reversi, see ReversiPatternEvaluator, with Texel's method. The AI
+ * plays games against itself on all cores, and every position of the games is labeled with the result of the game
+ * for the player to move. The weights are then fitted with logistic regression: the score of a position, times a
+ * scale, should predict the chance that the player to move wins.
+ *
+ * Every phase of the game has its own weights, so the phases are fitted on their own, in parallel. A step changes
+ * every weight by its gradient divided by how often its pattern was seen, and weights of patterns that are seldom
+ * seen are pulled back to where they started. When a step makes the fit worse it's taken back and the next steps
+ * are smaller. Every 10th game is kept apart to check that the weights also predict games they weren't fitted on.
+ *
+ * Every game has its own random generator made from the seed, and the results are always combined in the same
+ * order, so the same arguments give the same weights on any amount of cores.
+ *
+ * Arguments: the amount of games (default 2000), the amount of steps (default 100), the weights file that is
+ * written (default reversi.weights), the weights file to start from (default none, the value of every position)
+ * and the seed (default 1). The games are played with the weights to start from, or with stability, mobility and
+ * corners when there are none.
+ */
+public class ReversiWeightsTuner {
+
+    // Random moves at the start of every game, so the games are not all alike.
+    private static final int RANDOM_PLIES = 8;
+
+    // Depth of the search that picks the other moves of the games.
+    private static final int GAME_DEPTH = 3;
+
+    // Every game with an index that is a multiple of this is used to check the fit instead of to fit.
+    private static final int CHECK_GAMES = 10;
+
+    // How strongly weights are pulled back to where they started, as an amount of positions.
+    private static final double REGULARIZATION = 100;
+
+    // Part of the step every weight is moved, the weights of a position change together so a full step is too far.
+    private static final double START_RATE = 0.25;
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        Path file = Paths.get(args.length > 2 ? args[2] : "reversi.weights");
+        ReversiPatternEvaluator start = args.length > 3 ? ReversiPatternEvaluator.load(Paths.get(args[3])) : null;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long time = System.currentTimeMillis();
+            List<Game> played = playGames(pool, games, start, seed);
+            System.out.println("Played " + games + " games on " + threads + " threads in "
+                    + (System.currentTimeMillis() - time) / 1000 + " seconds");
+
+            ReversiPatternEvaluator evaluator = start != null ? start : ReversiPatternEvaluator.createDefault();
+            Phase[] phases = new Phase[ReversiPatternEvaluator.PHASES];
+            for(int phase = 0; phase < phases.length; phase++){
+                phases[phase] = new Phase(evaluator.getWeights(phase));
+            }
+            for(int i = 0; i < played.size(); i++){
+                Game game = played.get(i);
+                boolean check = i % CHECK_GAMES == 0;
+                for(int j = 0; j < game.size; j++){
+                    int phase = ReversiPatternEvaluator.getPhase(game.own[j], game.opponent[j]);
+                    phases[phase].add(game.own[j], game.opponent[j], game.results[j], check);
+                }
+            }
+
+            double scale = fitScale(phases);
+            System.out.println("Scale of the scores " + String.format("%.6f", scale));
+            System.out.println("Before: " + describe(phases, scale));
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for(Phase phase : phases){
+                tasks.add(() -> {
+                    phase.fit(scale, steps);
+                    return null;
+                });
+            }
+            for(Future<Void> future : pool.invokeAll(tasks)){
+                future.get();
+            }
+            System.out.println("After:  " + describe(phases, scale));
+
+            for(int phase = 0; phase < phases.length; phase++){
+                phases[phase].copyTo(evaluator.getWeights(phase));
+            }
+            evaluator.save(file);
+            System.out.println("Wrote the weights to " + file);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * This method plays the games on the pool, the games are returned in the order of their index.
+     */
+    private static List<Game> playGames(ExecutorService pool, int games, ReversiPatternEvaluator evaluator,
+                                        long seed) throws InterruptedException, ExecutionException {
+        ThreadLocal<TranspositionTable> tables = ThreadLocal.withInitial(() -> new TranspositionTable(4));
+        List<Future<Game>> futures = new ArrayList<>();
+        for(int i = 0; i < games; i++){
+            Random random = new Random(seed * 1000003 + i);
+            futures.add(pool.submit(() -> playGame(random, tables.get(), evaluator)));
+        }
+        List<Game> played = new ArrayList<>();
+        for(int i = 0; i < futures.size(); i++){
+            played.add(futures.get(i).get());
+            if((i + 1) % 500 == 0){
+                System.out.println((i + 1) + " games done");
+            }
+        }
+        return played;
+    }
+
+    /**
+     * This method plays one game and labels every position where the player to move has a move.
+     */
+    private static Game playGame(Random random, TranspositionTable table, ReversiPatternEvaluator evaluator){
+        table.clear();
+        ReversiSearchPosition position = new ReversiSearchPosition(new ReversiBoardLogic(), 2, evaluator);
+        MoveList moves = new MoveList();
+        Game game = new Game();
+        boolean passed = false;
+        for(int ply = 0; ; ply++){
+            position.generateMoves(moves);
+            if(moves.isEmpty()){
+                if(passed){
+                    break;
+                }
+                passed = true;
+                position.doMove(SearchPosition.PASS);
+                continue;
+            }
+            passed = false;
+            int player = position.getPlayer();
+            game.add(position.getDiscs(player), position.getDiscs(3 - player), player);
+
+            int move;
+            if(ply < RANDOM_PLIES){
+                move = moves.get(random.nextInt(moves.size()));
+            } else {
+                table.newSearch();
+                move = new NegamaxSearch(position.copy(), table).search(GAME_DEPTH).getMove();
+            }
+            position.doMove(move);
+        }
+        game.label(Integer.signum(Long.bitCount(position.getDiscs(1)) - Long.bitCount(position.getDiscs(2))));
+        return game;
+    }
+
+    /**
+     * This method finds the scale of the scores that predicts the results best with the weights to start from,
+     * with a golden section search over the logarithm of the scale.
+     */
+    private static double fitScale(Phase[] phases){
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = Math.log(1e-5);
+        double high = Math.log(1e-1);
+        for(int i = 0; i < 40; i++){
+            double a = high - ratio * (high - low);
+            double b = low + ratio * (high - low);
+            if(getLoss(phases, Math.exp(a), false) < getLoss(phases, Math.exp(b), false)){
+                high = b;
+            } else {
+                low = a;
+            }
+        }
+        return Math.exp((low + high) / 2);
+    }
+
+    private static double getLoss(Phase[] phases, double scale, boolean check){
+        double loss = 0;
+        int count = 0;
+        for(Phase phase : phases){
+            PositionSet set = check ? phase.check : phase.fit;
+            loss += set.getLoss(phase.weights, scale) * set.size;
+            count += set.size;
+        }
+        return loss / Math.max(count, 1);
+    }
+
+    private static String describe(Phase[] phases, double scale){
+        return String.format("loss %.5f on %d positions, %.5f on %d positions that are not fitted",
+                getLoss(phases, scale, false), countPositions(phases, false),
+                getLoss(phases, scale, true), countPositions(phases, true));
+    }
+
+    private static int countPositions(Phase[] phases, boolean check){
+        int count = 0;
+        for(Phase phase : phases){
+            count += check ? phase.check.size : phase.fit.size;
+        }
+        return count;
+    }
+
+    /**
+     * The positions of one game, with the result for the player to move in every position.
+     */
+    private static class Game {
+
+        private long[] own = new long[64];
+        private long[] opponent = new long[64];
+        private int[] players = new int[64];
+        private float[] results = new float[64];
+        private int size;
+
+        void add(long ownDiscs, long opponentDiscs, int player){
+            if(size == own.length){
+                own = Arrays.copyOf(own, size * 2);
+                opponent = Arrays.copyOf(opponent, size * 2);
+                players = Arrays.copyOf(players, size * 2);
+                results = Arrays.copyOf(results, size * 2);
+            }
+            own[size] = ownDiscs;
+            opponent[size] = opponentDiscs;
+            players[size] = player;
+            size++;
+        }
+
+        /**
+         * This method labels the positions with the winner: 1 if player 1 won, -1 if player 2 won, 0 for a draw.
+         */
+        void label(int winner){
+            for(int i = 0; i < size; i++){
+                int result = players[i] == 1 ? winner : -winner;
+                results[i] = (result + 1) / 2.0f;
+            }
+        }
+    }
+
+    /**
+     * The positions of one phase of the game as indexes of the weights of their patterns, with their results.
+     */
+    private static class PositionSet {
+
+        private int[] features = new int[1024 * ReversiPatternEvaluator.FEATURES];
+        private float[] results = new float[1024];
+        private int size;
+        private final int[] position = new int[ReversiPatternEvaluator.FEATURES];
+
+        void add(long own, long opponent, float result){
+            if(size == results.length){
+                features = Arrays.copyOf(features, features.length * 2);
+                results = Arrays.copyOf(results, results.length * 2);
+            }
+            ReversiPatternEvaluator.getFeatures(own, opponent, position);
+            System.arraycopy(position, 0, features, size * position.length, position.length);
+            results[size++] = result;
+        }
+
+        /**
+         * This method returns the chance that the player to move wins a position, predicted from its score.
+         */
+        double predict(int position, float[] weights, double scale){
+            double score = 0;
+            int first = position * ReversiPatternEvaluator.FEATURES;
+            for(int i = first; i < first + ReversiPatternEvaluator.FEATURES; i++){
+                score += weights[features[i]];
+            }
+            return 1 / (1 + Math.exp(-scale * score));
+        }
+
+        /**
+         * This method returns the mean logistic loss of the predictions.
+         */
+        double getLoss(float[] weights, double scale){
+            double loss = 0;
+            for(int position = 0; position < size; position++){
+                double p = Math.min(Math.max(predict(position, weights, scale), 1e-9), 1 - 1e-9);
+                double result = results[position];
+                loss -= result * Math.log(p) + (1 - result) * Math.log(1 - p);
+            }
+            return size > 0 ? loss / size : 0;
+        }
+    }
+
+    /**
+     * The weights of one phase of the game and the positions they are fitted on.
+     */
+    private static class Phase {
+
+        private final float[] start;
+        private final float[] weights;
+        private final PositionSet fit = new PositionSet();
+        private final PositionSet check = new PositionSet();
+
+        Phase(short[] startWeights){
+            start = new float[startWeights.length];
+            for(int i = 0; i < start.length; i++){
+                start[i] = startWeights[i];
+            }
+            weights = start.clone();
+        }
+
+        void add(long own, long opponent, float result, boolean checkOnly){
+            (checkOnly ? check : fit).add(own, opponent, result);
+        }
+
+        /**
+         * This method fits the weights to the positions. A full step would be a Newton step for every weight on
+         * its own, with the highest curvature the logistic loss can have.
+         */
+        void fit(double scale, int steps){
+            int[] counts = new int[weights.length];
+            for(int i = 0; i < fit.size * ReversiPatternEvaluator.FEATURES; i++){
+                counts[fit.features[i]]++;
+            }
+            double[] gradients = new double[weights.length];
+            float[] previous = new float[weights.length];
+            double rate = START_RATE;
+            double loss = fit.getLoss(weights, scale);
+            for(int step = 0; step < steps && fit.size > 0; step++){
+                Arrays.fill(gradients, 0);
+                for(int position = 0; position < fit.size; position++){
+                    double error = fit.predict(position, weights, scale) - fit.results[position];
+                    int first = position * ReversiPatternEvaluator.FEATURES;
+                    for(int i = first; i < first + ReversiPatternEvaluator.FEATURES; i++){
+                        gradients[fit.features[i]] += error;
+                    }
+                }
+
+                System.arraycopy(weights, 0, previous, 0, weights.length);
+                for(int i = 0; i < weights.length; i++){
+                    if(counts[i] == 0){
+                        continue;
+                    }
+                    double change = (4 * gradients[i] / scale + REGULARIZATION * (weights[i] - start[i]))
+                            / (counts[i] + REGULARIZATION);
+                    weights[i] -= (float) (rate * change);
+                }
+
+                double newLoss = fit.getLoss(weights, scale);
+                if(newLoss > loss){
+                    System.arraycopy(previous, 0, weights, 0, weights.length);
+                    rate /= 2;
+                } else {
+                    loss = newLoss;
+                }
+            }
+        }
+
+        /**
+         * This method rounds the weights to the weights of the evaluation.
+         */
+        void copyTo(short[] target){
+            for(int i = 0; i < target.length; i++){
+                target[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(weights[i])));
+            }
+        }
+    }
+}
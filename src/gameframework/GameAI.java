@@ -11,6 +11,56 @@ public interface GameAI {
      */
     public int getBestMove(GameBoardLogic board, int player);
 
+    /**
+     * This method should do the same as getBestMove, but stop searching when one of the limits is reached.
+     * The best move that was found so far is returned then.
+     *
+     * @return the best move.
+     */
+    public int getBestMove(GameBoardLogic board, int player, SearchLimits limits);
+
+    /**
+     * This method should stop the search that is running right now, getBestMove then returns the best move it
+     * has found so far. This can be called from any thread.
+     */
+    public void stop();
+
+    /**
+     * This method should start searching in the background while the opponent is thinking. The position that is
+     * searched is the board after the expected move of the opponent. Either ponderHit or ponderMiss has to be
+     * called before the next getBestMove.
+     *
+     * @param board the board after the move of the AI.
+     * @param player the player the AI plays for.
+     * @param expectedMove the move the opponent is expected to make.
+     */
+    public void startPonder(GameBoardLogic board, int player, int expectedMove);
+
+    /**
+     * This method should be called when the opponent made the expected move. The background search then gets
+     * the normal time for a move, and the next getBestMove returns its result.
+     */
+    public void ponderHit();
+
+    /**
+     * This method should be called when the opponent made a different move. The background search is stopped.
+     */
+    public void ponderMiss();
+
+    /**
+     * This method should return the move the opponent is expected to make after the last move of the AI, this
+     * is the move that can be passed to startPonder.
+     *
+     * @return the expected move, or -1 if there is none.
+     */
+    public int getPonderMove();
+
+    /**
+     * This method should make the AI forget everything it learned in the current game. This should be called
+     * before the AI plays a new game.
+     */
+    public void newGame();
+
     /**
      * This method should return the difficulty of our AI.
      * This can be 0 = EASY, 1 = MEDIUM or 2 = HARD.
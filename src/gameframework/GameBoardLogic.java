@@ -8,6 +8,10 @@ public abstract class GameBoardLogic {
     // This variable stores all states within the gameBoard
     private int[] board;
 
+    // Zobrist key of the board and the key table it's built from.
+    private long hash;
+    private long[] zobristKeys;
+
     /**
      * Constructor that calls initBoard
      */
@@ -25,12 +29,20 @@ public abstract class GameBoardLogic {
      */
     public abstract void printBoard();
 
+    /**
+     * This method should return the Zobrist key table for this game, see Zobrist.createKeys. Every game should
+     * create its table once and return the same table every time.
+     * @return the key table.
+     */
+    protected abstract long[] getZobristKeys();
+
     /**
      * This method is used to set the state of a position within the board
      * @param pos the position within the board that will be changed.
      * @param state the state it should be changed to.
      */
     public void setBoardPos(int pos, int state){
+        hash ^= zobristKeys[pos * 3 + board[pos]] ^ zobristKeys[pos * 3 + state];
         board[pos] = state;
     }
 
@@ -44,7 +56,8 @@ public abstract class GameBoardLogic {
     }
 
     /**
-     * This method is used to return the board.
+     * This method is used to return the board. Changes should be made through setBoardPos or setBoard, otherwise
+     * the hash isn't updated.
      * @return int array that represents our game board.
      */
     public int[] getBoard(){
@@ -60,12 +73,35 @@ public abstract class GameBoardLogic {
      * @param newBoard a int array that represents the new game board.
      */
     public void setBoard(int[] newBoard){
+        if(zobristKeys == null){
+            zobristKeys = getZobristKeys();
+        }
         board = new int[newBoard.length];
+        hash = 0;
         for(int i=0; i<newBoard.length; i++){
             board[i] = newBoard[i];
+            hash ^= zobristKeys[i * 3 + newBoard[i]];
         }
     }
 
+    /**
+     * This method returns the Zobrist key of the board. The key only depends on the discs on the board.
+     * @return 64 bit key of the board.
+     */
+    public long hash(){
+        return hash;
+    }
+
+    /**
+     * This method returns the Zobrist key of the board combined with the player that is to move. This should be
+     * used to identify positions in a search.
+     * @param player the player that is to move.
+     * @return 64 bit key of the position.
+     */
+    public long hash(int player){
+        return player == 2 ? hash ^ Zobrist.SIDE_TO_MOVE : hash;
+    }
+
     /**
      * This method resets the board back to its begin state.
      */
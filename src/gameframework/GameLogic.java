@@ -26,18 +26,46 @@ public abstract class GameLogic {
     }
 
     /**
-     * This method should check for all valid moves.
+     * This method checks for all valid moves.
      * @param player integer representing the player that should be checked for.
      * @return ArrayList with integers containing all positions of valid moves.
      */
-    public abstract ArrayList<Integer> getMoves(int player);
+    public ArrayList<Integer> getMoves(int player){
+        MoveList moves = new MoveList();
+        generateMoves(player, moves);
+
+        ArrayList<Integer> result = new ArrayList<>(moves.size());
+        for(int i=0; i<moves.size(); i++){
+            result.add(moves.get(i));
+        }
+        return result;
+    }
 
     /**
-     * This method shold be used to make a move on the gameboard.
+     * This method should put all valid moves in a MoveList. The list is cleared first. Unlike getMoves this
+     * doesn't allocate anything, so this should be used by search algorithms.
+     * @param player integer representing the player that should be checked for.
+     * @param moves the list that will be filled with all positions of valid moves.
+     */
+    public abstract void generateMoves(int player, MoveList moves);
+
+    /**
+     * This method shold be used to make a move on the gameboard. It returns an undo token that contains everything
+     * needed to take the move back with undoMove, so search algorithms can play moves on a single board instead of
+     * copying it for every node.
      * @param pos position of the move.
      * @param player player that is making the move.
+     * @return undo token for undoMove.
+     */
+    public abstract long doMove(int pos, int player);
+
+    /**
+     * This method should take back a move made by doMove. Moves have to be taken back in the reverse order they
+     * were made in.
+     * @param pos position of the move that was passed to doMove.
+     * @param undo the undo token that was returned by doMove.
      */
-    public abstract void doMove(int pos, int player);
+    public abstract void undoMove(int pos, long undo);
 
     /**
      * This method should check if the game is over, and who won the game.
@@ -46,9 +74,9 @@ public abstract class GameLogic {
     public abstract int gameOver();
 
     /**
-     * This method should check whether a move is valid or not.
+     * This method should check whether a move is valid or not. This should be done without generating all moves.
      * @param move the move that should be checked.
-     * @param move the player that should be checked for.
+     * @param player the player that should be checked for.
      * @return true if valid, false if not.
      */
     public abstract boolean isValid(int move, int player);
@@ -0,0 +1,116 @@
+package src.gameframework;
+
+/**
+ * List of moves backed by a primitive int array. A MoveList is meant to be reused, search algorithms keep one
+ * list per ply and clear it before generating moves, so no lists or boxed integers are allocated per node.
+ */
+public class MoveList {
+
+    // The moves in this list, only the first size positions are used.
+    private int[] moves;
+    private int size;
+
+    /**
+     * Constructor that creates a list big enough for every game in this framework.
+     */
+    public MoveList() {
+        this(64);
+    }
+
+    /**
+     * Constructor that creates a list with a given starting capacity. The list grows when it's full.
+     *
+     * @param capacity the starting capacity.
+     */
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * This method adds a move to the end of the list.
+     *
+     * @param move the move to add.
+     */
+    public void add(int move){
+        if(size == moves.length){
+            int[] newMoves = new int[moves.length * 2];
+            System.arraycopy(moves, 0, newMoves, 0, size);
+            moves = newMoves;
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * This method returns the move at a given index.
+     *
+     * @param index the index of the move.
+     * @return the move.
+     */
+    public int get(int index){
+        return moves[index];
+    }
+
+    /**
+     * This method returns the amount of moves in the list.
+     *
+     * @return the amount of moves.
+     */
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * This method swaps two moves in the list. This is used for move ordering.
+     *
+     * @param first index of the first move.
+     * @param second index of the second move.
+     */
+    public void swap(int first, int second){
+        int move = moves[first];
+        moves[first] = moves[second];
+        moves[second] = move;
+    }
+
+    /**
+     * This method moves a move to the front of the list, the order of the other moves is kept.
+     *
+     * @param move the move to put in front.
+     * @return true if the move was in the list, false if not.
+     */
+    public boolean moveToFront(int move){
+        for(int i=0; i<size; i++){
+            if(moves[i] == move){
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method empties the list, the backing array is kept so the list can be reused.
+     */
+    public void clear(){
+        size = 0;
+    }
+
+    /**
+     * This method checks whether the list contains a move.
+     *
+     * @param move the move to look for.
+     * @return true if the move is in the list, false if not.
+     */
+    public boolean contains(int move){
+        for(int i=0; i<size; i++){
+            if(moves[i] == move){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package src.gameframework;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits for a search: a deadline, a maximum amount of nodes and a stop flag. A SearchLimits object is shared by
+ * every thread of a search. The threads check it every now and then, and when a limit is reached all of them stop
+ * and the best result that was completed is used.
+ */
+public class SearchLimits {
+
+    // Deadline in System.nanoTime, Long.MAX_VALUE means there is no deadline.
+    private volatile long deadline = Long.MAX_VALUE;
+    private final long maxNodes;
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean stopped;
+
+    // Limits of the search this is part of, these limits are reached when the parent limits are.
+    private final SearchLimits parent;
+
+    /**
+     * Constructor for limits without a deadline or node limit. The search only stops when it's done, or when
+     * stop is called.
+     */
+    public SearchLimits() {
+        this.maxNodes = Long.MAX_VALUE;
+        this.parent = null;
+    }
+
+    /**
+     * Constructor for limits of a part of a search. These limits are reached when the parent limits are reached,
+     * but they can also be stopped on their own without stopping the parent.
+     *
+     * @param parent the limits of the whole search.
+     */
+    public SearchLimits(SearchLimits parent) {
+        this.maxNodes = Long.MAX_VALUE;
+        this.parent = parent;
+    }
+
+    /**
+     * Constructor for limits with a deadline.
+     *
+     * @param maxTime time in seconds from now until the search should stop.
+     */
+    public SearchLimits(float maxTime) {
+        this(maxTime, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor for limits with a deadline and a node limit.
+     *
+     * @param maxTime time in seconds from now until the search should stop, 0 or less means no deadline.
+     * @param maxNodes the maximum amount of positions all threads together may visit.
+     */
+    public SearchLimits(float maxTime, long maxNodes) {
+        this.maxNodes = maxNodes;
+        this.parent = null;
+        setMaxTime(maxTime);
+    }
+
+    /**
+     * This method sets the deadline to a time from now. This can also be used on a running search.
+     *
+     * @param maxTime time in seconds from now until the search should stop, 0 or less means no deadline.
+     */
+    public void setMaxTime(float maxTime){
+        if(maxTime <= 0){
+            deadline = Long.MAX_VALUE;
+        } else {
+            deadline = System.nanoTime() + (long) (maxTime * 1_000_000_000L);
+        }
+    }
+
+    /**
+     * This method tells every thread of the search to stop as soon as possible.
+     */
+    public void stop(){
+        stopped = true;
+    }
+
+    /**
+     * This method checks if the search has been stopped, without checking the limits.
+     *
+     * @return true if the search should stop.
+     */
+    public boolean isStopped(){
+        return stopped || parent != null && parent.isStopped();
+    }
+
+    /**
+     * This method adds nodes to the amount of nodes visited and checks all limits. Searches should call this
+     * every few thousand nodes, checking the clock for every node is too expensive.
+     *
+     * @param newNodes the amount of nodes visited since the last check.
+     * @return true if the search should stop.
+     */
+    public boolean check(long newNodes){
+        if(stopped){
+            return true;
+        }
+        long time = deadline;
+        if(nodes.addAndGet(newNodes) >= maxNodes || time != Long.MAX_VALUE && System.nanoTime() - time >= 0
+                || parent != null && parent.check(newNodes)){
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * This method returns the amount of nodes reported by all threads.
+     *
+     * @return the amount of nodes.
+     */
+    public long getNodes(){
+        return nodes.get();
+    }
+}
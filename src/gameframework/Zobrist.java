@@ -0,0 +1,40 @@
+package src.gameframework;
+
+/**
+ * This class generates the random keys used for Zobrist hashing. The hash of a board is the XOR of the keys of all
+ * occupied positions, so it can be updated with two XOR operations whenever a position changes.
+ * Keys are generated from a fixed seed so a hash is the same in every run, which is needed for anything that is
+ * stored on disk, like opening books.
+ */
+public final class Zobrist {
+
+    // Key that is XORed into the hash when player 2 is to move.
+    public static final long SIDE_TO_MOVE = 0x5D3A8E6C2B1F4907L;
+
+    private Zobrist() {
+    }
+
+    /**
+     * This method creates a key table for a board. The table has 3 keys per position, one for every state
+     * (0 = empty, 1 = player 1, 2 = player 2). The key for an empty position is always 0.
+     *
+     * @param positions the amount of positions on the board.
+     * @param seed the seed for the random generator, every game should use its own seed.
+     * @return the key table, the key for a position and state is at index pos * 3 + state.
+     */
+    public static long[] createKeys(int positions, long seed){
+        long[] keys = new long[positions * 3];
+        long state = seed;
+        for(int pos = 0; pos < positions; pos++){
+            for(int i = 1; i < 3; i++){
+                // SplitMix64, a small generator with good enough output for hash keys.
+                state += 0x9E3779B97F4A7C15L;
+                long z = state;
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                keys[pos * 3 + i] = z ^ (z >>> 31);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,103 @@
+package src.gameframework.aistrategies;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size cache for the evaluations of leafs, shared by all search threads without locking.
+ *
+ * The same leaf is often reached through different orders of moves, the cache saves evaluating it again. Leafs are
+ * not stored in the transposition table, so this is a separate, smaller table. Entries are stored like in the
+ * transposition table: the key XORed with the data, and the data itself, so an entry that was half overwritten by
+ * another thread doesn't match. Every key has one slot that is always replaced.
+ *
+ * Evaluations may stop early when the score is outside of the window, see SearchPosition.evaluate(int, int). The
+ * cache stores those scores as bounds, and only returns them for windows they are still outside of.
+ */
+public class EvaluationCache {
+
+    // Layout of the data of an entry: the score and the bound type, see TranspositionTable.
+    private static final int BOUND_SHIFT = 16;
+
+    private final long[] table;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor that creates a cache that uses at most the given amount of memory.
+     *
+     * @param megabytes the memory budget in MB.
+     */
+    public EvaluationCache(int megabytes) {
+        long entries = Math.max(1L, (long) megabytes * 1024 * 1024 / 16);
+        // Round down to a power of two so the slot can be found with a mask.
+        int entryCount = (int) Math.min(Long.highestOneBit(entries), 1 << 26);
+        table = new long[entryCount * 2];
+        mask = entryCount - 1;
+    }
+
+    /**
+     * This method evaluates a position, or takes its score from the cache when it can be used for the window.
+     *
+     * @param position the position to evaluate.
+     * @param alpha the lowest score the player to move is already sure of.
+     * @param beta the highest score the opponent allows.
+     * @return the score of the position, or a bound outside of the window.
+     */
+    public int evaluate(SearchPosition position, int alpha, int beta){
+        long key = position.hash();
+        int index = ((int) key & mask) * 2;
+        long data = table[index + 1];
+        if((table[index] ^ data) == key && data != 0){
+            int score = (short) data;
+            int bound = (int) (data >>> BOUND_SHIFT);
+            if(bound == TranspositionTable.EXACT || bound == TranspositionTable.UPPER && score <= alpha
+                    || bound == TranspositionTable.LOWER && score >= beta){
+                hits.increment();
+                return score;
+            }
+        }
+        misses.increment();
+
+        int score = position.evaluate(alpha, beta);
+        int bound = TranspositionTable.EXACT;
+        if(score <= alpha){
+            bound = TranspositionTable.UPPER;
+        } else if(score >= beta){
+            bound = TranspositionTable.LOWER;
+        }
+        data = (score & 0xFFFFL) | ((long) bound << BOUND_SHIFT);
+        table[index] = key ^ data;
+        table[index + 1] = data;
+        return score;
+    }
+
+    /**
+     * This method returns the amount of evaluations taken from the cache since it was created or cleared.
+     *
+     * @return the amount of hits.
+     */
+    public long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * This method returns the amount of evaluations that were not in the cache since it was created or cleared.
+     *
+     * @return the amount of misses.
+     */
+    public long getMisses(){
+        return misses.sum();
+    }
+
+    /**
+     * This method removes all entries from the cache and sets the counters back to 0.
+     */
+    public void clear(){
+        Arrays.fill(table, 0);
+        hits.reset();
+        misses.reset();
+    }
+}
@@ -0,0 +1,130 @@
+package src.gameframework.aistrategies;
+
+import src.gameframework.GameLogic;
+import src.gameframework.MoveList;
+
+/**
+ * SearchPosition for games that are implemented with GameLogic. Moves are made and taken back on the board of
+ * the logic, so the board shouldn't be used by anything else while it's searched. Games only have to add an
+ * evaluation and a way to copy the position.
+ */
+public abstract class GameLogicPosition implements SearchPosition {
+
+    private final GameLogic logic;
+    private int player;
+
+    /**
+     * Constructor for GameLogicPosition.
+     *
+     * @param logic the logic with the board that is searched.
+     * @param player the player that is to move.
+     */
+    protected GameLogicPosition(GameLogic logic, int player) {
+        this.logic = logic;
+        this.player = player;
+    }
+
+    /**
+     * Method to get the logic of this position.
+     *
+     * @return the game logic.
+     */
+    public GameLogic getLogic() {
+        return logic;
+    }
+
+    @Override
+    public int getPlayer() {
+        return player;
+    }
+
+    @Override
+    public void generateMoves(MoveList moves) {
+        logic.generateMoves(player, moves);
+    }
+
+    /**
+     * The moves keep the order of generateMoves.
+     *
+     * @param moves the moves to sort.
+     */
+    @Override
+    public void orderMoves(MoveList moves) {
+    }
+
+    @Override
+    public long doMove(int move) {
+        long undo = 0;
+        if(move != PASS){
+            undo = logic.doMove(move, player);
+        }
+        player = 3 - player;
+        return undo;
+    }
+
+    @Override
+    public void undoMove(int move, long undo) {
+        player = 3 - player;
+        if(move != PASS){
+            logic.undoMove(move, undo);
+        }
+    }
+
+    /**
+     * This method checks if the game is over using GameLogic.gameOver. Games that have a cheaper way to check
+     * this should override it.
+     *
+     * @return true if the game is over.
+     */
+    @Override
+    public boolean isTerminal() {
+        return logic.gameOver() != 0;
+    }
+
+    /**
+     * Positions are evaluated completely by default, the window isn't used.
+     *
+     * @param alpha the lowest score the player to move is already sure of.
+     * @param beta the highest score the opponent allows.
+     * @return the score of evaluate.
+     */
+    @Override
+    public int evaluate(int alpha, int beta) {
+        return evaluate();
+    }
+
+    /**
+     * Moves are not evaluated in batches by default, the search makes them one by one.
+     *
+     * @return false.
+     */
+    @Override
+    public boolean evaluateMoves(MoveList moves, int from, int alpha, int beta, int[] scores) {
+        return false;
+    }
+
+    /**
+     * Positions are quiet by default, so the search is never deepened.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isQuiet() {
+        return true;
+    }
+
+    /**
+     * All positions are in the same phase by default.
+     *
+     * @return 0.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    @Override
+    public long hash() {
+        return logic.getBoard().hash(player);
+    }
+}
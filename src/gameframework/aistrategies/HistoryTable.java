@@ -0,0 +1,72 @@
+package src.gameframework.aistrategies;
+
+import java.util.Arrays;
+
+/**
+ * History heuristic for move ordering. Every time a move causes a cutoff its score goes up, more for cutoffs
+ * higher up in the tree. Moves with a high score are searched first, because a move that refutes one position
+ * often refutes similar positions too.
+ *
+ * The table is shared by all search threads and kept between moves of a game. Updates are not synchronized, an
+ * update that gets lost now and then only changes the order of some moves.
+ */
+public class HistoryTable {
+
+    // Every move of the games in this framework is a square or column below 64.
+    private static final int MOVES = 64;
+
+    // When a score gets this high all scores are halved, so they never overflow.
+    private static final int MAX_SCORE = 1 << 24;
+
+    // One row per player, players are 1 and 2.
+    private final int[] scores = new int[3 * MOVES];
+
+    /**
+     * This method returns the score of a move.
+     *
+     * @param player the player that makes the move.
+     * @param move the move.
+     * @return the score of the move, higher is better.
+     */
+    public int get(int player, int move){
+        if(move < 0 || move >= MOVES){
+            return 0;
+        }
+        return scores[player * MOVES + move];
+    }
+
+    /**
+     * This method raises the score of a move that caused a cutoff.
+     *
+     * @param player the player that made the move.
+     * @param move the move.
+     * @param depth the remaining depth of the node where the cutoff happened.
+     */
+    public void add(int player, int move, int depth){
+        if(move < 0 || move >= MOVES){
+            return;
+        }
+        int index = player * MOVES + move;
+        scores[index] += depth * depth;
+        if(scores[index] > MAX_SCORE){
+            age();
+        }
+    }
+
+    /**
+     * This method halves all scores. This is done before every search, so what was learned in earlier moves
+     * still counts but new cutoffs soon matter more.
+     */
+    public void age(){
+        for(int i = 0; i < scores.length; i++){
+            scores[i] >>= 1;
+        }
+    }
+
+    /**
+     * This method sets all scores to 0.
+     */
+    public void clear(){
+        Arrays.fill(scores, 0);
+    }
+}
@@ -0,0 +1,168 @@
+package src.gameframework.aistrategies;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import src.gameframework.SearchLimits;
+
+/**
+ * Parallel search using lazy SMP. Every thread runs the same iterative deepening search on its own copy of the
+ * position, the threads only communicate through the shared transposition table. Helper threads start at a
+ * different depth and search the moves near the root in a different order, so they fill the table with results
+ * the other threads can use.
+ *
+ * Unlike a split point search this keeps every thread busy even when the root only has 2 or 3 moves.
+ */
+public class LazySmpSearch {
+
+    private final ExecutorService pool;
+    private final int threads;
+    private final TranspositionTable table;
+    private final SearchLimits limits;
+    private HistoryTable history;
+    private EvaluationCache evaluationCache;
+    private int extensionPlies = NegamaxSearch.DEFAULT_EXTENSION_PLIES;
+    private int extensionNodes = NegamaxSearch.DEFAULT_EXTENSION_NODES;
+    private int aspirationWindow;
+    private boolean mtdf;
+    private MultiProbCut multiProbCut;
+    private boolean batchEvaluation;
+
+    /**
+     * Constructor for LazySmpSearch.
+     *
+     * @param pool the pool the helper threads run on.
+     * @param threads the amount of threads, including the thread that calls search.
+     * @param table the transposition table shared by all threads.
+     * @param limits the limits of the search.
+     */
+    public LazySmpSearch(ExecutorService pool, int threads, TranspositionTable table, SearchLimits limits) {
+        this.pool = pool;
+        this.threads = threads;
+        this.table = table;
+        this.limits = limits;
+    }
+
+    /**
+     * This method sets the history table used to order moves by all threads.
+     *
+     * @param history the history table, or null to keep the order of the moves.
+     */
+    public void setHistory(HistoryTable history){
+        this.history = history;
+    }
+
+    /**
+     * This method sets the cache for the evaluations of leafs, shared by all threads.
+     *
+     * @param evaluationCache the cache, or null to evaluate every leaf.
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache){
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * This method sets how far unstable leafs are searched deeper by all threads, see NegamaxSearch.
+     *
+     * @param plies the maximum amount of extra plies on every path.
+     * @param nodes the maximum amount of nodes below every leaf.
+     */
+    public void setExtensionLimits(int plies, int nodes){
+        this.extensionPlies = plies;
+        this.extensionNodes = nodes;
+    }
+
+    /**
+     * This method sets the window every iteration of all threads starts with, see NegamaxSearch.
+     *
+     * @param window the distance from the score of the previous iteration to both bounds, or 0 to always search
+     *               with the full window.
+     */
+    public void setAspirationWindow(int window){
+        this.aspirationWindow = window;
+    }
+
+    /**
+     * This method sets whether all threads evaluate the moves above the leafs in batches, see NegamaxSearch.
+     *
+     * @param batchEvaluation true to evaluate moves in batches.
+     */
+    public void setBatchEvaluation(boolean batchEvaluation){
+        this.batchEvaluation = batchEvaluation;
+    }
+
+    /**
+     * This method sets whether the iterations of all threads use MTD(f), see NegamaxSearch.
+     *
+     * @param mtdf true to use MTD(f).
+     */
+    public void setMtdf(boolean mtdf){
+        this.mtdf = mtdf;
+    }
+
+    /**
+     * This method sets the parameters for selective pruning by all threads, see MultiProbCut.
+     *
+     * @param multiProbCut the parameters, or null to search every node to its full depth.
+     */
+    public void setMultiProbCut(MultiProbCut multiProbCut){
+        this.multiProbCut = multiProbCut;
+    }
+
+    /**
+     * This method searches a position. The thread that calls this method runs the main search, the helpers run
+     * on the pool. When the main search is done the helpers are stopped, and the deepest completed result of all
+     * threads is returned.
+     *
+     * @param root the position to search, this position isn't changed.
+     * @param maxDepth the maximum depth.
+     * @return the result of the deepest completed search, or null if the limits were reached before the first
+     *         iteration was done.
+     */
+    public SearchResult search(SearchPosition root, int maxDepth){
+        // Helpers get their own limits, so they can be stopped when the main search is done.
+        SearchLimits helperLimits = new SearchLimits(limits);
+
+        List<Future<SearchResult>> helpers = new ArrayList<>(threads - 1);
+        for(int i = 0; i < threads - 1; i++){
+            NegamaxSearch helper = new NegamaxSearch(root.copy(), table, helperLimits);
+            helper.setHelper(i + 1);
+            helper.setHistory(history);
+            helper.setEvaluationCache(evaluationCache);
+            helper.setExtensionLimits(extensionPlies, extensionNodes);
+            helper.setAspirationWindow(aspirationWindow);
+            helper.setMtdf(mtdf);
+            helper.setMultiProbCut(multiProbCut);
+            helper.setBatchEvaluation(batchEvaluation);
+            helpers.add(pool.submit(() -> helper.search(maxDepth)));
+        }
+
+        NegamaxSearch main = new NegamaxSearch(root.copy(), table, limits);
+        main.setHistory(history);
+        main.setEvaluationCache(evaluationCache);
+        main.setExtensionLimits(extensionPlies, extensionNodes);
+        main.setAspirationWindow(aspirationWindow);
+        main.setMtdf(mtdf);
+        main.setMultiProbCut(multiProbCut);
+        main.setBatchEvaluation(batchEvaluation);
+        SearchResult result = main.search(maxDepth);
+        helperLimits.stop();
+
+        for(Future<SearchResult> helper : helpers){
+            try {
+                SearchResult helperResult = helper.get();
+                if(helperResult != null && (result == null || helperResult.getDepth() > result.getDepth())){
+                    result = helperResult;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return result;
+    }
+}
@@ -1,15 +1,87 @@
 package src.gameframework.aistrategies;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
 import src.gameframework.GameAI;
+import src.gameframework.GameBoardLogic;
+import src.gameframework.GameLogic;
+import src.gameframework.MoveList;
+import src.gameframework.SearchLimits;
 
+/**
+ * Base class for AI that use a negamax search. Games create a SearchPosition for the board, this class takes
+ * care of searching it.
+ */
 public abstract class MinimaxStrategy implements GameAI {
 
+    // Parallel search modes. YBWC splits the tree between threads, lazy SMP lets every thread search the whole
+    // tree and share results through the transposition table.
+    public static final int PARALLEL_YBWC = 0;
+    public static final int PARALLEL_LAZY_SMP = 1;
+
     // Maximum time per move.
     private float maxTime = 10;
 
     // Difficulty for our AI.
     private int difficulty = 3;
 
+    // Memory for the transposition table in MB, and the table itself. The table is created when it's first used.
+    private int hashSize = 16;
+    private TranspositionTable transpositionTable;
+
+    // Memory for the evaluation cache in MB, 0 turns the cache off. The cache is created when it's first used. It's
+    // off by default, it only pays off when the evaluation of a game is a lot slower than a cache miss.
+    private int evaluationCacheSize = 0;
+    private EvaluationCache evaluationCache;
+
+    // Move ordering knowledge, kept between the moves of a game like the transposition table.
+    private final HistoryTable historyTable = new HistoryTable();
+
+    // Limits for searching unstable leafs deeper: extra plies on every path and nodes for every leaf.
+    private int extensionPlies = NegamaxSearch.DEFAULT_EXTENSION_PLIES;
+    private int extensionNodes = NegamaxSearch.DEFAULT_EXTENSION_NODES;
+
+    // Window around the score of the previous iteration every iteration starts with, 0 uses the full window. The
+    // best size depends on the scores of the game. With mtdf the iterations use MTD(f) instead.
+    private int aspirationWindow;
+    private boolean mtdf;
+
+    // Parameters for selective pruning, or null to search every node to its full depth.
+    private MultiProbCut multiProbCut;
+
+    // Whether the moves above the leafs are evaluated in batches, see NegamaxSearch.setBatchEvaluation.
+    private boolean batchEvaluation;
+
+    // Amount of threads used to search, and the pool with these threads. The pool is created when it's first used.
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool pool;
+    private int parallelMode = PARALLEL_YBWC;
+
+    // Limits passed to getBestMove by the caller, and the limits of the search that is running right now.
+    private SearchLimits requestedLimits;
+    private volatile SearchLimits activeLimits;
+
+    // Result of the last search that was played and the position it searched. The principal variation is used to
+    // predict the move of the opponent, and to order the moves of the next search.
+    private volatile SearchResult lastResult;
+    private volatile SearchPosition lastRoot;
+
+    // Searches run one at a time while holding searchLock, not the lock of this object. This way the setters can
+    // stop the search on the opponent's time before they change anything.
+    private final Object searchLock = new Object();
+
+    // The search on the opponent's time. The task runs getBestMove on the expected position, its search stores the
+    // result together with the hash of the position it searched. The limits identify that search until the next
+    // normal search starts. The fields are guarded by ponderLock, because the search itself holds searchLock.
+    private final Object ponderLock = new Object();
+    private FutureTask<Integer> ponderTask;
+    private SearchLimits ponderLimits;
+    private boolean ponderConfirmed;
+    private SearchResult ponderResult;
+    private long ponderKey;
+
     /**
      * Method to get the difficulty of our AI.
      * This can be 0 = EASY, 1 = MEDIUM or 2 = HARD.
@@ -53,4 +125,618 @@ public abstract class MinimaxStrategy implements GameAI {
         this.maxTime = maxTime;
     }
 
+    /**
+     * Method to get the transposition table of this AI. The same table is returned every time, so it can be
+     * shared by all search threads.
+     *
+     * @return the transposition table.
+     */
+    public synchronized TranspositionTable getTranspositionTable() {
+        if(transpositionTable == null){
+            transpositionTable = new TranspositionTable(hashSize);
+        }
+        return transpositionTable;
+    }
+
+    /**
+     * Method to get the evaluation cache of this AI. The same cache is returned every time, so it can be shared
+     * by all search threads.
+     *
+     * @return the evaluation cache, or null if the cache is turned off.
+     */
+    public synchronized EvaluationCache getEvaluationCache() {
+        if(evaluationCache == null && evaluationCacheSize > 0){
+            evaluationCache = new EvaluationCache(evaluationCacheSize);
+        }
+        return evaluationCache;
+    }
+
+    /**
+     * Method to get the memory budget of the evaluation cache.
+     *
+     * @return memory in MB, 0 if the cache is turned off.
+     */
+    public int getEvaluationCacheSize() {
+        return evaluationCacheSize;
+    }
+
+    /**
+     * Method to change the memory budget of the evaluation cache. The cache is created again the next time it's
+     * used.
+     *
+     * @param evaluationCacheSize memory in MB, 0 turns the cache off.
+     */
+    public void setEvaluationCacheSize(int evaluationCacheSize) {
+        if(evaluationCacheSize < 0){
+            System.err.println("Not a valid evaluation cache size : " + evaluationCacheSize);
+        } else {
+            ponderMiss();
+            synchronized(this){
+                this.evaluationCacheSize = evaluationCacheSize;
+                this.evaluationCache = null;
+            }
+        }
+    }
+
+    /**
+     * Method to get the history table of this AI, it's shared by all search threads.
+     *
+     * @return the history table.
+     */
+    public HistoryTable getHistoryTable() {
+        return historyTable;
+    }
+
+    /**
+     * Method to get the maximum amount of extra plies an unstable leaf is searched deeper.
+     *
+     * @return the amount of plies.
+     */
+    public int getExtensionPlies() {
+        return extensionPlies;
+    }
+
+    /**
+     * Method to change the maximum amount of extra plies an unstable leaf is searched deeper. 0 evaluates every
+     * leaf directly.
+     *
+     * @param extensionPlies the amount of plies.
+     */
+    public void setExtensionPlies(int extensionPlies) {
+        if(extensionPlies < 0 || extensionPlies > 16){
+            System.err.println("Not a valid amount of extension plies : " + extensionPlies);
+        } else {
+            this.extensionPlies = extensionPlies;
+        }
+    }
+
+    /**
+     * Method to get the maximum amount of nodes that are searched below an unstable leaf.
+     *
+     * @return the amount of nodes.
+     */
+    public int getExtensionNodes() {
+        return extensionNodes;
+    }
+
+    /**
+     * Method to change the maximum amount of nodes that are searched below an unstable leaf.
+     *
+     * @param extensionNodes the amount of nodes.
+     */
+    public void setExtensionNodes(int extensionNodes) {
+        if(extensionNodes < 1){
+            System.err.println("Not a valid amount of extension nodes : " + extensionNodes);
+        } else {
+            this.extensionNodes = extensionNodes;
+        }
+    }
+
+    /**
+     * Method to get the aspiration window of the search.
+     *
+     * @return the distance from the score of the previous iteration to both bounds, 0 if the full window is used.
+     */
+    public int getAspirationWindow() {
+        return aspirationWindow;
+    }
+
+    /**
+     * Method to change the aspiration window of the search. Every iteration of the search starts with a window
+     * around the score of the previous iteration, a small window is faster but has to be searched again more often.
+     *
+     * @param aspirationWindow the distance from the score of the previous iteration to both bounds, 0 to always
+     *                         search with the full window.
+     */
+    public void setAspirationWindow(int aspirationWindow) {
+        if(aspirationWindow < 0){
+            System.err.println("Not a valid aspiration window : " + aspirationWindow);
+        } else {
+            this.aspirationWindow = aspirationWindow;
+        }
+    }
+
+    /**
+     * Method to check if the moves above the leafs are evaluated in batches.
+     *
+     * @return true if moves are evaluated in batches.
+     */
+    public boolean isBatchEvaluation() {
+        return batchEvaluation;
+    }
+
+    /**
+     * Method to change whether the moves above the leafs are evaluated in batches, see
+     * SearchPosition.evaluateMoves. This is off by default, in reversi batches cost as much per position as
+     * evaluating the positions alone, also with the Vector API, and the search cuts off half of the positions of
+     * a batch.
+     *
+     * @param batchEvaluation true to evaluate moves in batches.
+     */
+    public void setBatchEvaluation(boolean batchEvaluation) {
+        this.batchEvaluation = batchEvaluation;
+    }
+
+    /**
+     * Method to check if the search uses MTD(f).
+     *
+     * @return true if the iterations of the search use MTD(f).
+     */
+    public boolean isMtdf() {
+        return mtdf;
+    }
+
+    /**
+     * Method to change whether the iterations of the search use MTD(f) instead of an aspiration window. MTD(f)
+     * only searches with null windows, and uses the transposition table to find the positions it searched before.
+     *
+     * @param mtdf true to use MTD(f).
+     */
+    public void setMtdf(boolean mtdf) {
+        this.mtdf = mtdf;
+    }
+
+    /**
+     * Method to get the parameters for selective pruning.
+     *
+     * @return the parameters, or null if every node is searched to its full depth.
+     */
+    public MultiProbCut getMultiProbCut() {
+        return multiProbCut;
+    }
+
+    /**
+     * Method to change the parameters for selective pruning. The parameters belong to the evaluation they were
+     * calibrated with.
+     *
+     * @param multiProbCut the parameters, or null to search every node to its full depth.
+     */
+    public void setMultiProbCut(MultiProbCut multiProbCut) {
+        this.multiProbCut = multiProbCut;
+    }
+
+    /**
+     * Method to forget everything learned in the current game. The transposition table and history table are kept
+     * between the moves of a game, this should be called before the AI plays a new game.
+     */
+    public void newGame() {
+        // The search on the opponent's time is stopped first, it may need the lock of this object to finish.
+        ponderMiss();
+        synchronized(this){
+            getTranspositionTable().clear();
+            EvaluationCache cache = getEvaluationCache();
+            if(cache != null){
+                cache.clear();
+            }
+        }
+        historyTable.clear();
+        lastResult = null;
+        lastRoot = null;
+    }
+
+    /**
+     * Method to get the memory budget of the transposition table.
+     *
+     * @return memory in MB.
+     */
+    public int getHashSize() {
+        return hashSize;
+    }
+
+    /**
+     * Method to change the memory budget of the transposition table. The table is created again the next
+     * time it's used.
+     *
+     * @param hashSize memory in MB.
+     */
+    public void setHashSize(int hashSize) {
+        if(hashSize < 1){
+            System.err.println("Not a valid hash size : " + hashSize);
+        } else {
+            ponderMiss();
+            synchronized(this){
+                this.hashSize = hashSize;
+                this.transpositionTable = null;
+            }
+        }
+    }
+
+    /**
+     * Method to get the amount of threads used to search.
+     *
+     * @return the amount of threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Method to change the amount of threads used to search. The pool is created again the next time it's used.
+     *
+     * @param threads the amount of threads.
+     */
+    public void setThreads(int threads) {
+        if(threads < 1){
+            System.err.println("Not a valid amount of threads : " + threads);
+        } else {
+            ponderMiss();
+            synchronized(this){
+                this.threads = threads;
+                if(pool != null){
+                    pool.shutdown();
+                    pool = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to get the parallel search mode.
+     * This can be PARALLEL_YBWC or PARALLEL_LAZY_SMP.
+     *
+     * @return the parallel search mode.
+     */
+    public int getParallelMode() {
+        return parallelMode;
+    }
+
+    /**
+     * Method to change the parallel search mode.
+     * This can be PARALLEL_YBWC or PARALLEL_LAZY_SMP.
+     *
+     * @param parallelMode the parallel search mode.
+     */
+    public void setParallelMode(int parallelMode) {
+        if(parallelMode != PARALLEL_YBWC && parallelMode != PARALLEL_LAZY_SMP){
+            System.err.println("Not a valid parallel mode : " + parallelMode);
+        } else {
+            this.parallelMode = parallelMode;
+        }
+    }
+
+    /**
+     * Method to get the thread pool of this AI.
+     *
+     * @return the thread pool.
+     */
+    protected synchronized ForkJoinPool getPool() {
+        if(pool == null){
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+
+    /**
+     * Method that finds the best move within the given limits. The limits are used by the next search started
+     * by getBestMove.
+     *
+     * @param board the board to find a move for.
+     * @param player the player to find a move for.
+     * @param limits the limits of the search.
+     * @return the best move.
+     */
+    public int getBestMove(GameBoardLogic board, int player, SearchLimits limits) {
+        synchronized(searchLock){
+            requestedLimits = limits;
+            try {
+                return findBestMove(board, player);
+            } finally {
+                requestedLimits = null;
+            }
+        }
+    }
+
+    /**
+     * Method that finds the best move. Only one search runs at a time, a second call waits for the first one.
+     *
+     * @param board the board to find a move for.
+     * @param player the player to find a move for.
+     * @return the best move.
+     */
+    public int getBestMove(GameBoardLogic board, int player) {
+        synchronized(searchLock){
+            return findBestMove(board, player);
+        }
+    }
+
+    /**
+     * This method should iterate the whole game board and it should determine which move currently is the best
+     * move to make. This is called by getBestMove while it holds the search lock, so it never runs twice at once.
+     *
+     * @param board the board to find a move for.
+     * @param player the player to find a move for.
+     * @return the best move.
+     */
+    protected abstract int findBestMove(GameBoardLogic board, int player);
+
+    /**
+     * Method to stop the search that is running right now.
+     */
+    public void stop() {
+        SearchLimits limits = activeLimits;
+        if(limits != null){
+            limits.stop();
+        }
+    }
+
+    /**
+     * Method to start searching the position after the expected move of the opponent, while the opponent is
+     * thinking. The search runs on its own thread without a deadline until ponderHit or ponderMiss is called.
+     *
+     * @param board the board after the move of the AI.
+     * @param player the player the AI plays for.
+     * @param expectedMove the move the opponent is expected to make.
+     */
+    public void startPonder(GameBoardLogic board, int player, int expectedMove) {
+        ponderMiss();
+
+        GameLogic logic = createGameLogic();
+        logic.getBoard().setBoard(board.getBoard());
+        if(logic.gameOver() != 0 || !logic.isValid(expectedMove, 3 - player)){
+            return;
+        }
+        logic.doMove(expectedMove, 3 - player);
+        GameBoardLogic expectedBoard = logic.getBoard();
+
+        synchronized(ponderLock){
+            SearchLimits limits = new SearchLimits();
+            ponderLimits = limits;
+            ponderConfirmed = false;
+            ponderResult = null;
+            ponderTask = new FutureTask<>(() -> getBestMove(expectedBoard, player, limits));
+
+            Thread thread = new Thread(ponderTask, "ponder");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Method to tell the AI the opponent made the expected move. From now on the search on the opponent's time
+     * gets the normal time for a move, and the next getBestMove returns its result.
+     */
+    public void ponderHit() {
+        synchronized(ponderLock){
+            if(ponderTask != null){
+                ponderConfirmed = true;
+                ponderLimits.setMaxTime(getSearchTime());
+            }
+        }
+    }
+
+    /**
+     * Method to tell the AI the opponent made a different move. The search on the opponent's time is stopped,
+     * this method returns when it's done.
+     */
+    public void ponderMiss() {
+        FutureTask<Integer> task;
+        synchronized(ponderLock){
+            task = ponderTask;
+            if(task == null){
+                return;
+            }
+            ponderLimits.stop();
+            ponderTask = null;
+            ponderConfirmed = false;
+        }
+
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("The search on the opponent's time failed : " + e.getCause());
+        }
+    }
+
+    /**
+     * Method to get the move the opponent is expected to make, this is the second move of the principal
+     * variation of the last search.
+     *
+     * @return the expected move, or -1 if there is none.
+     */
+    public int getPonderMove() {
+        SearchResult result = lastResult;
+        if(result == null || result.getPrincipalVariation().length < 2){
+            return -1;
+        }
+        return result.getPrincipalVariation()[1];
+    }
+
+    /**
+     * This method creates game logic with a new board of the game this AI plays. This is used to make the
+     * expected move of the opponent when pondering.
+     *
+     * @return the game logic.
+     */
+    protected abstract GameLogic createGameLogic();
+
+    /**
+     * This method returns the limits for a new search, and makes them the limits that stop() stops. These are
+     * the limits passed to getBestMove, or a deadline 0.2 seconds before the maximum time is up.
+     *
+     * @return the limits for the search.
+     */
+    protected SearchLimits startSearch() {
+        SearchLimits limits = requestedLimits;
+        if(limits == null){
+            limits = new SearchLimits(getSearchTime());
+        }
+        activeLimits = limits;
+        return limits;
+    }
+
+    /**
+     * This method returns the time a search may take, a bit less than the maximum time so the move is sent in
+     * time.
+     */
+    private float getSearchTime(){
+        return Math.max(maxTime - 0.2f, maxTime / 2);
+    }
+
+    /**
+     * This method takes the result of the search on the opponent's time, when the opponent made the expected
+     * move and the position is the same. Pondering is over after a normal search starts, so this result can only
+     * be taken once. Searches hold the search lock, so the search on the opponent's time is done by now.
+     *
+     * @return the result of the search on the opponent's time, or null if it can't be used.
+     */
+    private SearchResult takePonderResult(SearchLimits limits, long key){
+        synchronized(ponderLock){
+            if(limits == ponderLimits){
+                return null;
+            }
+            SearchResult pondered = ponderConfirmed && ponderKey == key ? ponderResult : null;
+            ponderTask = null;
+            ponderLimits = null;
+            ponderConfirmed = false;
+            ponderResult = null;
+            return pondered;
+        }
+    }
+
+    /**
+     * This method stores the result of a search when it's the search on the opponent's time.
+     *
+     * @return true if the search was the search on the opponent's time.
+     */
+    private boolean storePonderResult(SearchLimits limits, long key, SearchResult result){
+        synchronized(ponderLock){
+            if(limits != ponderLimits){
+                return false;
+            }
+            ponderResult = result;
+            ponderKey = key;
+            return true;
+        }
+    }
+
+    /**
+     * This method searches a position and returns the best move. The search runs on the thread pool of this AI
+     * with ParallelNegamaxSearch or LazySmpSearch, depending on the parallel mode. All threads share the
+     * transposition table and the search limits. When a limit is reached the result of the last completed
+     * iteration is used.
+     *
+     * @param root the position to search, this position isn't changed.
+     * @param depth the depth of the search, including the move of the root.
+     * @return the result of the search, the move is -1 if the player has no valid moves.
+     */
+    protected SearchResult search(SearchPosition root, int depth) {
+        SearchLimits limits = startSearch();
+
+        // When the opponent made the expected move, this position has already been searched on their time.
+        SearchResult pondered = takePonderResult(limits, root.hash());
+        if(pondered != null){
+            lastResult = pondered;
+            lastRoot = root.copy();
+            return pondered;
+        }
+
+        MoveList moves = new MoveList();
+        root.generateMoves(moves);
+        if(moves.isEmpty()){
+            return new SearchResult(-1, 0, 0, new int[0], 0);
+        }
+
+        // Some positions can be solved exactly, the search is only used when that doesn't work out in time.
+        SearchResult result = solve(root, limits);
+        if(result == null){
+            // Knowledge of earlier moves is kept, but it ages so this search soon takes over.
+            TranspositionTable table = getTranspositionTable();
+            table.newSearch();
+            historyTable.age();
+            addPreviousPrincipalVariation(table);
+
+            if(parallelMode == PARALLEL_LAZY_SMP){
+                LazySmpSearch search = new LazySmpSearch(getPool(), threads, table, limits);
+                search.setHistory(historyTable);
+                search.setEvaluationCache(getEvaluationCache());
+                search.setExtensionLimits(extensionPlies, extensionNodes);
+                search.setAspirationWindow(aspirationWindow);
+                search.setMtdf(mtdf);
+                search.setMultiProbCut(multiProbCut);
+                search.setBatchEvaluation(batchEvaluation);
+                result = search.search(root, depth);
+            } else {
+                ParallelNegamaxSearch search = new ParallelNegamaxSearch(getPool(), table, limits);
+                search.setHistory(historyTable);
+                search.setEvaluationCache(getEvaluationCache());
+                search.setExtensionLimits(extensionPlies, extensionNodes);
+                search.setAspirationWindow(aspirationWindow);
+                search.setMtdf(mtdf);
+                search.setMultiProbCut(multiProbCut);
+                search.setBatchEvaluation(batchEvaluation);
+                result = search.search(root, depth);
+            }
+        }
+        // If not even the first iteration was done, just play the first move.
+        if(result == null){
+            result = new SearchResult(moves.get(0), 0, 0, new int[] {moves.get(0)}, 0);
+        }
+
+        if(!storePonderResult(limits, root.hash(), result)){
+            if(limits.isStopped()){
+                System.err.println("A timeout occurred!");
+            }
+            lastResult = result;
+            lastRoot = root.copy();
+        }
+        return result;
+    }
+
+    /**
+     * This method can solve a position exactly before it's searched, for example near the end of a game. By
+     * default nothing is solved.
+     *
+     * @param root the position to solve, the player to move has at least one valid move.
+     * @param limits the limits of the search, solving should stop early enough to leave time for the search.
+     * @return the result, or null if the position isn't solved and should be searched.
+     */
+    protected SearchResult solve(SearchPosition root, SearchLimits limits) {
+        return null;
+    }
+
+    /**
+     * This method adds the principal variation of the last search to the transposition table, for the positions
+     * on it that are no longer in the table. When the game follows that line, the moves of it are searched first
+     * again. These entries are hints with depth 0, so they are never used for their score and they don't replace
+     * the deep entries of earlier searches, see TranspositionTable.storeHint.
+     */
+    private void addPreviousPrincipalVariation(TranspositionTable table){
+        SearchResult result = lastResult;
+        SearchPosition position = lastRoot;
+        if(result == null || position == null){
+            return;
+        }
+
+        position = position.copy();
+        for(int move : result.getPrincipalVariation()){
+            long key = position.hash();
+            if(move != SearchPosition.PASS && table.probe(key) == 0){
+                table.storeHint(key, move);
+            }
+            position.doMove(move);
+        }
+    }
+
 }
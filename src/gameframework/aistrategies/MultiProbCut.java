@@ -0,0 +1,264 @@
+package src.gameframework.aistrategies;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Parameters for Multi-ProbCut, selective pruning of the search.
+ *
+ * The score of a deep search can be predicted from the score of a shallow search of the same position:
+ * deep = slope * shallow + offset, with an error that has a known standard deviation. Before a node is searched
+ * deeply, a shallow search checks if the deep score is very likely above beta or below alpha. When it is, the node
+ * is cut off without the deep search. The threshold is the amount of standard deviations the prediction has to be
+ * away from the window, a higher threshold prunes less but makes fewer mistakes.
+ *
+ * The parameters are found for every phase of the game and every depth, see SearchPosition.getPhase, by comparing
+ * shallow and deep searches of a lot of positions offline. Depths that weren't calibrated are never pruned, except
+ * deeper searches which use the parameters of the deepest calibrated depth with the same parity. Their shallow
+ * search is just as much deeper, see getProbeDepth, so it stays as far below the deep search as in the
+ * calibration. The parameters
+ * only fit the evaluation they were calibrated with, so they keep an identifier of that evaluation.
+ */
+public class MultiProbCut {
+
+    // "MPCT", the first bytes of every parameter file.
+    private static final int MAGIC = 0x4D504354;
+    private static final int VERSION = 2;
+
+    // Nodes with less depth left are never pruned, the shallow search would cost as much as the deep one.
+    public static final int MIN_DEPTH = 3;
+
+    public static final double DEFAULT_THRESHOLD = 1.5;
+
+    private final int phases;
+    private final int maxDepth;
+
+    // The prediction for every phase and depth, a deviation of 0 means the depth isn't calibrated.
+    private final float[][] slopes;
+    private final float[][] offsets;
+    private final float[][] deviations;
+
+    private double threshold = DEFAULT_THRESHOLD;
+
+    // Identifier of the evaluation the parameters were calibrated with, the game decides what it means.
+    private long evaluation;
+
+    /**
+     * Constructor for MultiProbCut without calibrated depths.
+     *
+     * @param phases the amount of phases of the game.
+     * @param maxDepth the deepest depth that can be calibrated.
+     */
+    public MultiProbCut(int phases, int maxDepth) {
+        this.phases = phases;
+        this.maxDepth = maxDepth;
+        this.slopes = new float[phases][maxDepth + 1];
+        this.offsets = new float[phases][maxDepth + 1];
+        this.deviations = new float[phases][maxDepth + 1];
+    }
+
+    /**
+     * This method returns the depth of the shallow search for a deep search. The shallow depth has the same parity
+     * as the deep one, because the player that moves last has an advantage in the evaluation of most games.
+     *
+     * @param depth the depth of the deep search, at least MIN_DEPTH.
+     * @return the depth of the shallow search.
+     */
+    public static int getShallowDepth(int depth){
+        int shallow = depth / 4 * 2 + (depth & 1);
+        return shallow == 0 ? depth - 2 : shallow;
+    }
+
+    /**
+     * This method returns the depth of the shallow search that predicts a deep search. Up to the deepest calibrated
+     * depth that's getShallowDepth. Deeper searches use the parameters of a calibrated depth, so their shallow
+     * search is that many plies deeper than the shallow search of the calibrated depth. The prediction was only
+     * fitted for that distance between the two searches.
+     *
+     * @param depth the depth of the deep search, at least MIN_DEPTH.
+     * @return the depth of the shallow search.
+     */
+    public int getProbeDepth(int depth){
+        int calibrated = getCalibratedDepth(depth);
+        return getShallowDepth(calibrated) + depth - calibrated;
+    }
+
+    /**
+     * This method sets the prediction of a deep search from a shallow search.
+     *
+     * @param phase the phase of the game.
+     * @param depth the depth of the deep search.
+     * @param slope the slope of the prediction.
+     * @param offset the offset of the prediction.
+     * @param deviation the standard deviation of the error of the prediction, 0 to never prune at this depth.
+     */
+    public void set(int phase, int depth, float slope, float offset, float deviation){
+        slopes[phase][depth] = slope;
+        offsets[phase][depth] = offset;
+        deviations[phase][depth] = deviation;
+    }
+
+    /**
+     * Method to get the amount of phases of the game.
+     *
+     * @return the amount of phases.
+     */
+    public int getPhases() {
+        return phases;
+    }
+
+    /**
+     * Method to get the deepest depth that can be calibrated.
+     *
+     * @return the depth.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Method to get the amount of standard deviations the prediction has to be outside of the window.
+     *
+     * @return the threshold.
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Method to change the amount of standard deviations the prediction has to be outside of the window. A
+     * higher threshold prunes less but makes fewer mistakes.
+     *
+     * @param threshold the threshold.
+     */
+    public void setThreshold(double threshold) {
+        if(threshold <= 0){
+            System.err.println("Not a valid probcut threshold : " + threshold);
+        } else {
+            this.threshold = threshold;
+        }
+    }
+
+    /**
+     * This method checks if a node can be pruned.
+     *
+     * @param phase the phase of the game of the node.
+     * @param depth the depth left.
+     * @return true if the depth is calibrated for the phase.
+     */
+    public boolean canPrune(int phase, int depth){
+        depth = getCalibratedDepth(depth);
+        return depth >= MIN_DEPTH && phase < phases && deviations[phase][depth] > 0 && slopes[phase][depth] > 0;
+    }
+
+    /**
+     * This method returns the lowest score of the shallow search that predicts a deep score of at least beta.
+     *
+     * @param phase the phase of the game of the node, canPrune should be true.
+     * @param depth the depth left.
+     * @param beta the beta of the deep search.
+     * @return the bound for the shallow search.
+     */
+    public int getHighBound(int phase, int depth, int beta){
+        depth = getCalibratedDepth(depth);
+        double bound = (beta + threshold * deviations[phase][depth] - offsets[phase][depth]) / slopes[phase][depth];
+        return (int) Math.min(Math.ceil(bound), NegamaxSearch.INFINITY);
+    }
+
+    /**
+     * This method returns the highest score of the shallow search that predicts a deep score of at most alpha.
+     *
+     * @param phase the phase of the game of the node, canPrune should be true.
+     * @param depth the depth left.
+     * @param alpha the alpha of the deep search.
+     * @return the bound for the shallow search.
+     */
+    public int getLowBound(int phase, int depth, int alpha){
+        depth = getCalibratedDepth(depth);
+        double bound = (alpha - threshold * deviations[phase][depth] - offsets[phase][depth]) / slopes[phase][depth];
+        return (int) Math.max(Math.floor(bound), -NegamaxSearch.INFINITY);
+    }
+
+    /**
+     * Method to get the identifier of the evaluation the parameters were calibrated with.
+     *
+     * @return the identifier of the evaluation.
+     */
+    public long getEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Method to change the identifier of the evaluation the parameters were calibrated with. It's saved with the
+     * parameters, so the game can check that the parameters fit the evaluation it uses.
+     *
+     * @param evaluation the identifier of the evaluation.
+     */
+    public void setEvaluation(long evaluation) {
+        this.evaluation = evaluation;
+    }
+
+    /**
+     * This method returns the depth of which the parameters are used for a depth.
+     */
+    private int getCalibratedDepth(int depth){
+        return depth <= maxDepth ? depth : maxDepth - ((depth - maxDepth) & 1);
+    }
+
+    /**
+     * This method loads the parameters from a file, see save.
+     *
+     * @param file the file to load.
+     * @return the parameters, with the default threshold.
+     * @throws IOException when the file can't be read or has no parameters.
+     */
+    public static MultiProbCut load(Path file) throws IOException {
+        try(InputStream stream = Files.newInputStream(file);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream))){
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                throw new IOException("Not a probcut file : " + file);
+            }
+            MultiProbCut probCut = new MultiProbCut(in.readInt(), in.readInt());
+            probCut.setEvaluation(in.readLong());
+            for(int phase = 0; phase < probCut.phases; phase++){
+                for(int depth = 0; depth <= probCut.maxDepth; depth++){
+                    probCut.set(phase, depth, in.readFloat(), in.readFloat(), in.readFloat());
+                }
+            }
+            return probCut;
+        }
+    }
+
+    /**
+     * This method writes the parameters to a file: the magic number, the version, the amount of phases, the
+     * deepest depth and the identifier of the evaluation, followed by the slope, offset and deviation of every
+     * depth of every phase.
+     *
+     * @param file the file to write, an existing file is replaced.
+     * @throws IOException when the file can't be written.
+     */
+    public void save(Path file) throws IOException {
+        try(OutputStream stream = Files.newOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(phases);
+            out.writeInt(maxDepth);
+            out.writeLong(evaluation);
+            for(int phase = 0; phase < phases; phase++){
+                for(int depth = 0; depth <= maxDepth; depth++){
+                    out.writeFloat(slopes[phase][depth]);
+                    out.writeFloat(offsets[phase][depth]);
+                    out.writeFloat(deviations[phase][depth]);
+                }
+            }
+        }
+    }
+}
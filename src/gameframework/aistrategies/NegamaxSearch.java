@@ -0,0 +1,636 @@
+package src.gameframework.aistrategies;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntBinaryOperator;
+
+import src.gameframework.MoveList;
+import src.gameframework.SearchLimits;
+
+/**
+ * Game independent negamax search with alpha-beta pruning and iterative deepening.
+ *
+ * Scores are always from the point of view of the player to move, so the score of a position is minus the score
+ * of the best move for the opponent. The search is deepened one ply at a time, and the best move of every
+ * iteration is searched first in the next one through the transposition table. The other moves are ordered by the
+ * history table, when there is one, and by the position itself. The principal variation is tracked with a
+ * triangular table.
+ *
+ * Moves after the first one are searched with a null window, which only proves that they are not better than the
+ * best move so far. Only when that fails, the move is searched again with the full window. Every iteration can
+ * start with an aspiration window around the score of the previous iteration, which is widened when the score
+ * falls outside of it. With a transposition table the iterations can also use MTD(f), which finds the score with
+ * null window searches only.
+ *
+ * With MultiProbCut parameters, nodes are pruned when a shallow search predicts that the deep search will fail
+ * high or low.
+ *
+ * Leafs that are not quiet are searched deeper, one ply at a time until the position is quiet. This is limited to
+ * a number of extra plies on every path, and to a number of nodes for every leaf, so an unstable part of the tree
+ * can't take over the whole search.
+ *
+ * A search makes and takes back moves on its own position, so every thread needs its own NegamaxSearch with a copy
+ * of the position. The transposition table, evaluation cache and search limits can be shared.
+ *
+ * The limits are checked every CHECK_INTERVAL nodes. When a limit is reached the search unwinds right away, the
+ * unfinished iteration is thrown away and the result of the last completed iteration is used.
+ */
+public class NegamaxSearch {
+
+    // Bigger than every score a position can have.
+    public static final int INFINITY = 30000;
+
+    // Maximum distance from the root, this is far more than any game in this framework needs.
+    public static final int MAX_PLY = 128;
+
+    // Amount of nodes between two checks of the search limits, this has to be a power of two.
+    private static final int CHECK_INTERVAL = 1024;
+
+    // Moves are only sorted by the position with at least this much depth left. Closer to the leafs the sorting
+    // costs more than it saves.
+    private static final int ORDER_DEPTH = 2;
+
+    // Returned by probCut when the node isn't pruned.
+    static final int NO_CUT = Integer.MIN_VALUE;
+
+    // Default limits for deepening unstable leafs: extra plies on every path and nodes for every leaf.
+    public static final int DEFAULT_EXTENSION_PLIES = 2;
+    public static final int DEFAULT_EXTENSION_NODES = 500;
+
+    private SearchPosition position;
+    private final TranspositionTable table;
+    private final SearchLimits limits;
+    private HistoryTable history;
+    private EvaluationCache evaluationCache;
+    private int extensionPlies = DEFAULT_EXTENSION_PLIES;
+    private int extensionNodes = DEFAULT_EXTENSION_NODES;
+    private int aspirationWindow;
+    private boolean mtdf;
+    private MultiProbCut multiProbCut;
+    private boolean batchEvaluation;
+
+    // Whether a shallow search of probCut is running, nodes below it are not pruned again.
+    private boolean probing;
+
+    // Node count when the search reached the leaf that is being deepened right now.
+    private long extensionStart;
+
+    // Split point of the parallel search this search is part of. The search stops when the split point is cut off.
+    private ParallelNegamaxSearch.SplitPoint splitPoint;
+
+    // Whether the position searched is the root of the game tree. The root is never cut off by the table, because
+    // the search has to find a move for it.
+    private boolean root = true;
+
+    // One move list per ply, and the principal variation found from every ply.
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    // Scores of the positions after the moves of every ply, for moves that are evaluated in a batch.
+    private final int[][] leafScores = new int[MAX_PLY][64];
+
+    // Principal variation of the last search of the root that found a move better than alpha.
+    private int[] rootLine = new int[0];
+
+    private long nodes;
+
+    // Nodes since this object was created. Unlike nodes this isn't reset for every part of a parallel search, so
+    // the limits are also checked when these parts are small.
+    private long checkNodes;
+    private boolean aborted;
+
+    // Variations for helper threads of a lazy SMP search: the depth of the first iteration, and a number that
+    // changes the order of the moves near the root. Helper 0 doesn't change anything.
+    private int startDepth = 1;
+    private int helper;
+
+    /**
+     * Constructor for a NegamaxSearch without limits.
+     *
+     * @param position the position to search, this is changed while searching and restored afterwards.
+     * @param table the transposition table to use, or null to search without one.
+     */
+    public NegamaxSearch(SearchPosition position, TranspositionTable table) {
+        this(position, table, new SearchLimits());
+    }
+
+    /**
+     * Constructor for NegamaxSearch.
+     *
+     * @param position the position to search, this is changed while searching and restored afterwards.
+     * @param table the transposition table to use, or null to search without one.
+     * @param limits the limits of the search.
+     */
+    public NegamaxSearch(SearchPosition position, TranspositionTable table, SearchLimits limits) {
+        this.position = position;
+        this.table = table;
+        this.limits = limits;
+        for(int i = 0; i < MAX_PLY; i++){
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * This method sets the history table used to order moves, it's updated with every cutoff.
+     *
+     * @param history the history table, or null to keep the order of the moves.
+     */
+    public void setHistory(HistoryTable history){
+        this.history = history;
+    }
+
+    /**
+     * This method sets the cache for the evaluations of leafs.
+     *
+     * @param evaluationCache the cache, or null to evaluate every leaf.
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache){
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * This method sets how far unstable leafs are searched deeper.
+     *
+     * @param plies the maximum amount of extra plies on every path, 0 evaluates every leaf directly.
+     * @param nodes the maximum amount of nodes below every leaf, after that the positions are evaluated directly.
+     */
+    public void setExtensionLimits(int plies, int nodes){
+        this.extensionPlies = plies;
+        this.extensionNodes = nodes;
+    }
+
+    /**
+     * This method sets the window every iteration starts with, see aspirationSearch.
+     *
+     * @param window the distance from the score of the previous iteration to both bounds, or 0 to always search
+     *               with the full window.
+     */
+    public void setAspirationWindow(int window){
+        this.aspirationWindow = window;
+    }
+
+    /**
+     * This method sets whether the moves above the leafs are evaluated in batches, see
+     * SearchPosition.evaluateMoves. Batches evaluate positions the search may cut off before it would have
+     * reached them, so this only pays when evaluating a batch is much cheaper than evaluating the positions alone.
+     *
+     * @param batchEvaluation true to evaluate moves in batches.
+     */
+    public void setBatchEvaluation(boolean batchEvaluation){
+        this.batchEvaluation = batchEvaluation;
+    }
+
+    /**
+     * This method sets whether the iterations use MTD(f), see mtdf. This only works well with a transposition
+     * table, without one every iteration uses the aspiration window.
+     *
+     * @param mtdf true to use MTD(f).
+     */
+    public void setMtdf(boolean mtdf){
+        this.mtdf = mtdf;
+    }
+
+    /**
+     * This method sets the parameters for selective pruning.
+     *
+     * @param multiProbCut the parameters, or null to search every node to its full depth.
+     */
+    public void setMultiProbCut(MultiProbCut multiProbCut){
+        this.multiProbCut = multiProbCut;
+    }
+
+    /**
+     * This method makes this search a helper thread of a lazy SMP search. Helpers start at a different depth and
+     * search the moves near the root in a different order, so they don't all search the same positions at the
+     * same time.
+     *
+     * @param helper the number of the helper, 0 is the main thread.
+     */
+    public void setHelper(int helper){
+        this.helper = helper;
+        this.startDepth = 1 + helper % 2;
+    }
+
+    /**
+     * This method searches the position with iterative deepening, one ply deeper every iteration until the
+     * maximum depth is reached.
+     *
+     * @param maxDepth the maximum depth, with depth 0 the position is only evaluated.
+     * @return the result of the deepest completed search, or null if the limits were reached before the first
+     *         iteration was done.
+     */
+    public SearchResult search(int maxDepth){
+        nodes = 0;
+        aborted = false;
+        if(maxDepth <= 0){
+            return new SearchResult(-1, position.evaluate(), 0, new int[0], 1);
+        }
+
+        SearchResult result = null;
+        for(int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; depth++){
+            int iterationDepth = depth;
+            IntBinaryOperator root = (alpha, beta) -> searchRoot(iterationDepth, alpha, beta);
+            rootLine = new int[0];
+            int score;
+            if(result == null){
+                score = searchRoot(depth, -INFINITY, INFINITY);
+            } else if(mtdf && table != null){
+                score = mtdf(root, this::isAborted, result.getScore());
+            } else {
+                score = aspirationSearch(root, this::isAborted, result.getScore(), aspirationWindow);
+            }
+            if(aborted){
+                break;
+            }
+            result = new SearchResult(rootLine.length > 0 ? rootLine[0] : -1, score, depth, rootLine, nodes);
+        }
+        return result;
+    }
+
+    /**
+     * This method searches the root with a window. The principal variation is kept when a move is found that is
+     * better than alpha, for the other moves only an upper bound of their score is known.
+     */
+    private int searchRoot(int depth, int alpha, int beta){
+        int score = negamax(depth, 0, alpha, beta, false, 0);
+        if(!aborted && score > alpha){
+            rootLine = Arrays.copyOf(pv[0], pvLength[0]);
+        }
+        return score;
+    }
+
+    /**
+     * This method searches the root with an aspiration window around the score of the previous iteration. When
+     * the score falls outside of the window, the window is made wider on that side and the root is searched again.
+     * Most of the time the score is close to the previous one, and the small window causes more cutoffs.
+     *
+     * @param root searches the root with a window and returns its score.
+     * @param aborted tells if the search of the root was stopped.
+     * @param guess the score of the previous iteration.
+     * @param window the distance from the guess to both bounds of the first window, 0 uses the full window.
+     * @return the score of the root, not valid when the search was stopped.
+     */
+    static int aspirationSearch(IntBinaryOperator root, BooleanSupplier aborted, int guess, int window){
+        if(window <= 0){
+            return root.applyAsInt(-INFINITY, INFINITY);
+        }
+        int alpha = Math.max(guess - window, -INFINITY);
+        int beta = Math.min(guess + window, INFINITY);
+        while(true){
+            int score = root.applyAsInt(alpha, beta);
+            if(aborted.getAsBoolean()){
+                return score;
+            }
+            if(score <= alpha && alpha > -INFINITY){
+                window *= 2;
+                alpha = Math.max(score - window, -INFINITY);
+            } else if(score >= beta && beta < INFINITY){
+                window *= 2;
+                beta = Math.min(score + window, INFINITY);
+            } else {
+                return score;
+            }
+        }
+    }
+
+    /**
+     * This method finds the score of the root with MTD(f): a series of null window searches that each move a
+     * bound of the score towards the guess, until both bounds meet. Every search is cheap because it only proves
+     * a bound, and the positions it needs again are in the transposition table.
+     *
+     * @param root searches the root with a window and returns its score.
+     * @param aborted tells if the search of the root was stopped.
+     * @param guess the first guess of the score, the score of the previous iteration.
+     * @return the score of the root, not valid when the search was stopped.
+     */
+    static int mtdf(IntBinaryOperator root, BooleanSupplier aborted, int guess){
+        int score = guess;
+        int lower = -INFINITY;
+        int upper = INFINITY;
+        while(lower < upper){
+            int beta = score == lower ? score + 1 : score;
+            score = root.applyAsInt(beta - 1, beta);
+            if(aborted.getAsBoolean()){
+                return score;
+            }
+            if(score < beta){
+                upper = score;
+            } else {
+                lower = score;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * This method searches a part of the tree for ParallelNegamaxSearch. The search stops early when the limits
+     * are reached or when the split point is cut off, isAborted tells if that happened.
+     *
+     * @param position the position to search, this is changed while searching and restored afterwards.
+     * @param depth the depth of the search.
+     * @param alpha the lowest score the player to move is already sure of.
+     * @param beta the highest score the opponent allows.
+     * @param splitPoint the split point above this part of the tree, or null.
+     * @return the score of the position for the player to move.
+     */
+    int searchSubtree(SearchPosition position, int depth, int alpha, int beta,
+                      ParallelNegamaxSearch.SplitPoint splitPoint){
+        this.position = position;
+        this.splitPoint = splitPoint;
+        this.root = false;
+        nodes = 0;
+        aborted = false;
+        int score = negamax(depth, 0, alpha, beta, false, 0);
+        this.splitPoint = null;
+        return score;
+    }
+
+    /**
+     * This method checks if a node of ParallelNegamaxSearch can be pruned, see probCut.
+     *
+     * @param position the position of the node, this is changed while searching and restored afterwards.
+     * @param depth the depth of the node.
+     * @param alpha the lowest score the player to move is already sure of.
+     * @param beta the highest score the opponent allows.
+     * @param splitPoint the split point above the node, or null.
+     * @return the score of the node when it's pruned, otherwise NO_CUT.
+     */
+    int probCutSubtree(SearchPosition position, int depth, int alpha, int beta,
+                       ParallelNegamaxSearch.SplitPoint splitPoint){
+        nodes = 0;
+        aborted = false;
+        if(multiProbCut == null){
+            return NO_CUT;
+        }
+        this.position = position;
+        this.splitPoint = splitPoint;
+        this.root = false;
+        int score = probCut(depth, 0, alpha, beta, false);
+        this.splitPoint = null;
+        return score;
+    }
+
+    /**
+     * This method returns the amount of positions visited by the last search.
+     *
+     * @return the amount of nodes.
+     */
+    public long getNodes(){
+        return nodes;
+    }
+
+    /**
+     * This method checks if the last search was stopped by its limits.
+     *
+     * @return true if the search was stopped.
+     */
+    public boolean isAborted(){
+        return aborted;
+    }
+
+    /**
+     * Recursive negamax search with alpha-beta pruning.
+     *
+     * @param depth remaining depth of the search tree.
+     * @param ply distance from the root.
+     * @param alpha the lowest score the player to move is already sure of.
+     * @param beta the highest score the opponent allows.
+     * @param passed whether the previous move was a pass.
+     * @param extension the amount of plies this path has been deepened because of unstable leafs.
+     * @return the score of the position for the player to move.
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, boolean passed, int extension){
+        pvLength[ply] = 0;
+        if(countNode()){
+            return 0;
+        }
+
+        if(position.isTerminal() || ply == MAX_PLY - 1){
+            return position.evaluate();
+        }
+
+        // Unstable leafs are searched one ply deeper, until they are quiet or the limits are reached.
+        if(depth <= 0){
+            if(extension == 0){
+                extensionStart = nodes;
+            }
+            if(extension >= extensionPlies || nodes - extensionStart >= extensionNodes || position.isQuiet()){
+                return evaluationCache != null
+                        ? evaluationCache.evaluate(position, alpha, beta)
+                        : position.evaluate(alpha, beta);
+            }
+            depth = 1;
+            extension++;
+        }
+
+        // Results of deepened parts of the tree are never stored, because they depend on how the leaf was reached.
+        long key = position.hash();
+        int alphaOrig = alpha;
+        int hashMove = -1;
+        if(table != null && extension == 0){
+            long entry = table.probe(key);
+            if(entry != 0){
+                hashMove = TranspositionTable.getMove(entry);
+                if((ply > 0 || !root) && TranspositionTable.getDepth(entry) >= depth){
+                    int score = TranspositionTable.getScore(entry);
+                    switch(TranspositionTable.getBound(entry)){
+                        case TranspositionTable.EXACT:
+                            return score;
+                        case TranspositionTable.LOWER:
+                            if(score > alpha) alpha = score;
+                            break;
+                        case TranspositionTable.UPPER:
+                            if(score < beta) beta = score;
+                            break;
+                    }
+                    if(alpha >= beta) return score;
+                }
+            }
+        }
+
+        if(multiProbCut != null && !probing && extension == 0 && (ply > 0 || !root)
+                && depth >= MultiProbCut.MIN_DEPTH){
+            int score = probCut(depth, ply, alpha, beta, passed);
+            if(score != NO_CUT){
+                return score;
+            }
+            if(aborted){
+                return 0;
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        position.generateMoves(moves);
+
+        // Without moves the player has to pass, unless the opponent couldn't move either, then the game is over.
+        if(moves.isEmpty()){
+            if(passed){
+                return position.evaluate();
+            }
+            long undo = position.doMove(SearchPosition.PASS);
+            int score = -negamax(depth, ply + 1, -beta, -alpha, true, extension);
+            position.undoMove(SearchPosition.PASS, undo);
+            if(aborted){
+                return 0;
+            }
+            updatePv(ply, SearchPosition.PASS);
+            return score;
+        }
+
+        // Helpers rotate the moves after the first one near the root.
+        boolean rotated = helper != 0 && ply < 3 && moves.size() > 2;
+        if(rotated){
+            int shift = (helper + ply) % (moves.size() - 1);
+            for(int i = 0; i < shift; i++){
+                moves.moveToFront(moves.get(moves.size() - 1));
+                moves.swap(0, 1);
+            }
+        }
+        // The moves of the root aren't sorted by history, so ties between the best moves are broken the same way in
+        // every search. The position sorts after the history, so the history only decides between equal moves.
+        if(history != null && (ply > 0 || !root)){
+            sortByHistory(moves);
+        }
+        if(depth >= ORDER_DEPTH && !rotated){
+            position.orderMoves(moves);
+        }
+        if(hashMove != -1){
+            moves.moveToFront(hashMove);
+        }
+
+        // Principal variation search: after the first move, the moves are searched with a null window first.
+        // With batch evaluation, the moves after the first one above the leafs are evaluated in one batch when the
+        // first move doesn't cut off. The batch uses the window after the first move, alpha only goes up after that
+        // so the scores stay valid bounds.
+        int bestScore = -INFINITY;
+        int bestMove = -1;
+        int[] scores = leafScores[ply];
+        boolean batched = false;
+        for(int i = 0; i < moves.size(); i++){
+            int move = moves.get(i);
+            if(i == 1 && depth == 1 && batchEvaluation && evaluationCache == null && ply + 2 < MAX_PLY
+                    && moves.size() > 2 && moves.size() <= scores.length){
+                batched = position.evaluateMoves(moves, 1, -beta, -alpha, scores);
+            }
+            int score;
+            if(batched && scores[i] != SearchPosition.UNSTABLE){
+                pvLength[ply + 1] = 0;
+                if(countNode()){
+                    return 0;
+                }
+                score = -scores[i];
+            } else {
+                long undo = position.doMove(move);
+                if(i == 0){
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha, false, extension);
+                } else {
+                    score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha, false, extension);
+                    if(score > alpha && score < beta && !aborted){
+                        score = -negamax(depth - 1, ply + 1, -beta, -alpha, false, extension);
+                    }
+                }
+                position.undoMove(move, undo);
+                if(aborted){
+                    return 0;
+                }
+            }
+
+            if(score > bestScore){
+                bestScore = score;
+                bestMove = move;
+                if(score > alpha){
+                    alpha = score;
+                    updatePv(ply, move);
+                }
+            }
+            if(alpha >= beta){
+                if(history != null){
+                    history.add(position.getPlayer(), move, depth);
+                }
+                break;
+            }
+        }
+
+        if(table != null && extension == 0){
+            int bound = TranspositionTable.EXACT;
+            if(bestScore <= alphaOrig){
+                bound = TranspositionTable.UPPER;
+            } else if(bestScore >= beta){
+                bound = TranspositionTable.LOWER;
+            }
+            table.store(key, depth, bound, bestScore, bestMove);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * This method counts a node and checks the limits of the search every CHECK_INTERVAL nodes.
+     *
+     * @return true if the search is aborted.
+     */
+    private boolean countNode(){
+        nodes++;
+        checkNodes++;
+        if((checkNodes & (CHECK_INTERVAL - 1)) == 0
+                && (limits.check(CHECK_INTERVAL) || splitPoint != null && splitPoint.isCutoff())){
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    /**
+     * This method checks with a shallow search if the deep search of a node will very likely fail high or low.
+     * The shallow search uses a null window at the score that predicts beta, or alpha, with enough certainty. The
+     * shallow searches run on the same ply as the node, so they are done before the node uses its move list.
+     *
+     * @return beta or alpha when the node is pruned, otherwise NO_CUT.
+     */
+    private int probCut(int depth, int ply, int alpha, int beta, boolean passed){
+        int phase = position.getPhase();
+        if(!multiProbCut.canPrune(phase, depth)){
+            return NO_CUT;
+        }
+        int shallow = multiProbCut.getProbeDepth(depth);
+        int result = NO_CUT;
+        probing = true;
+        int bound = multiProbCut.getHighBound(phase, depth, beta);
+        if(bound < INFINITY && negamax(shallow, ply, bound - 1, bound, passed, 0) >= bound){
+            result = beta;
+        } else if(!aborted){
+            bound = multiProbCut.getLowBound(phase, depth, alpha);
+            if(bound > -INFINITY && negamax(shallow, ply, bound, bound + 1, passed, 0) <= bound){
+                result = alpha;
+            }
+        }
+        probing = false;
+        pvLength[ply] = 0;
+        return aborted ? NO_CUT : result;
+    }
+
+    /**
+     * This method sorts moves from the highest history score to the lowest. Moves with the same score keep their
+     * order, so the order of the game is used until there are cutoffs.
+     */
+    private void sortByHistory(MoveList moves){
+        int player = position.getPlayer();
+        for(int i = 1; i < moves.size(); i++){
+            int score = history.get(player, moves.get(i));
+            for(int j = i; j > 0 && history.get(player, moves.get(j - 1)) < score; j--){
+                moves.swap(j, j - 1);
+            }
+        }
+    }
+
+    /**
+     * This method sets the principal variation of a ply to a move followed by the principal variation of the
+     * next ply.
+     */
+    private void updatePv(int ply, int move){
+        pv[ply][0] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, length);
+        pvLength[ply] = length + 1;
+    }
+}
@@ -0,0 +1,466 @@
+package src.gameframework.aistrategies;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntBinaryOperator;
+
+import src.gameframework.MoveList;
+import src.gameframework.SearchLimits;
+
+/**
+ * Parallel alpha-beta search using the Young Brothers Wait Concept on a ForkJoinPool.
+ *
+ * At every node that is deep enough the eldest brother, the first move, is searched first. Only when it doesn't
+ * cause a cutoff, the remaining moves, the younger brothers, are split off as tasks that idle threads can steal.
+ * The younger brothers share a split point with the best score so far, every task reads the newest bound when it
+ * starts, and as soon as one of them causes a cutoff all others stop. Nodes that are not deep enough are searched
+ * by a NegamaxSearch of the thread itself.
+ *
+ * Younger brothers are searched with a null window first, and only searched again with the window of the split
+ * point when they turn out to be better than the best brother so far.
+ *
+ * The search is deepened one ply at a time like NegamaxSearch, with the same aspiration windows or MTD(f), and all
+ * threads share the transposition table.
+ */
+public class ParallelNegamaxSearch {
+
+    // Nodes with a lower depth are searched by a single thread, splitting them costs more than it saves.
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+    private final SearchLimits limits;
+    private HistoryTable history;
+    private EvaluationCache evaluationCache;
+    private int extensionPlies = NegamaxSearch.DEFAULT_EXTENSION_PLIES;
+    private int extensionNodes = NegamaxSearch.DEFAULT_EXTENSION_NODES;
+    private int aspirationWindow;
+    private boolean mtdf;
+    private MultiProbCut multiProbCut;
+    private boolean batchEvaluation;
+
+    // Every thread of the pool gets its own NegamaxSearch for the parts of the tree it searches alone.
+    private final ThreadLocal<NegamaxSearch> searches;
+    private final LongAdder nodes = new LongAdder();
+
+    // Best move of the last search of the root that found a move better than alpha.
+    private int rootMove;
+
+    /**
+     * Constructor for ParallelNegamaxSearch.
+     *
+     * @param pool the pool to run the search on.
+     * @param table the transposition table shared by all threads, or null to search without one.
+     * @param limits the limits of the search.
+     */
+    public ParallelNegamaxSearch(ForkJoinPool pool, TranspositionTable table, SearchLimits limits) {
+        this.pool = pool;
+        this.table = table;
+        this.limits = limits;
+        this.searches = ThreadLocal.withInitial(() -> {
+            NegamaxSearch search = new NegamaxSearch(null, table, limits);
+            search.setHistory(history);
+            search.setEvaluationCache(evaluationCache);
+            search.setExtensionLimits(extensionPlies, extensionNodes);
+            search.setMultiProbCut(multiProbCut);
+            search.setBatchEvaluation(batchEvaluation);
+            return search;
+        });
+    }
+
+    /**
+     * This method sets the history table used to order moves by all threads.
+     *
+     * @param history the history table, or null to keep the order of the moves.
+     */
+    public void setHistory(HistoryTable history){
+        this.history = history;
+    }
+
+    /**
+     * This method sets the cache for the evaluations of leafs, shared by all threads.
+     *
+     * @param evaluationCache the cache, or null to evaluate every leaf.
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache){
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * This method sets how far unstable leafs are searched deeper by all threads, see NegamaxSearch.
+     *
+     * @param plies the maximum amount of extra plies on every path.
+     * @param nodes the maximum amount of nodes below every leaf.
+     */
+    public void setExtensionLimits(int plies, int nodes){
+        this.extensionPlies = plies;
+        this.extensionNodes = nodes;
+    }
+
+    /**
+     * This method sets the window every iteration starts with, see NegamaxSearch.aspirationSearch.
+     *
+     * @param window the distance from the score of the previous iteration to both bounds, or 0 to always search
+     *               with the full window.
+     */
+    public void setAspirationWindow(int window){
+        this.aspirationWindow = window;
+    }
+
+    /**
+     * This method sets whether all threads evaluate the moves above the leafs in batches, see NegamaxSearch.
+     *
+     * @param batchEvaluation true to evaluate moves in batches.
+     */
+    public void setBatchEvaluation(boolean batchEvaluation){
+        this.batchEvaluation = batchEvaluation;
+    }
+
+    /**
+     * This method sets whether the iterations use MTD(f), see NegamaxSearch.mtdf. This only works well with a
+     * transposition table, without one every iteration uses the aspiration window.
+     *
+     * @param mtdf true to use MTD(f).
+     */
+    public void setMtdf(boolean mtdf){
+        this.mtdf = mtdf;
+    }
+
+    /**
+     * This method sets the parameters for selective pruning by all threads, see MultiProbCut.
+     *
+     * @param multiProbCut the parameters, or null to search every node to its full depth.
+     */
+    public void setMultiProbCut(MultiProbCut multiProbCut){
+        this.multiProbCut = multiProbCut;
+    }
+
+    /**
+     * This method searches a position with iterative deepening, one ply deeper every iteration until the
+     * maximum depth is reached.
+     *
+     * @param root the position to search, this position isn't changed.
+     * @param maxDepth the maximum depth.
+     * @return the result of the deepest completed search, or null if the limits were reached before the first
+     *         iteration was done.
+     */
+    public SearchResult search(SearchPosition root, int maxDepth){
+        if(maxDepth <= 0){
+            return new SearchResult(-1, root.evaluate(), 0, new int[0], 1);
+        }
+
+        SearchResult result = null;
+        for(int depth = 1; depth <= maxDepth; depth++){
+            int iterationDepth = depth;
+            IntBinaryOperator search = (alpha, beta) -> searchRoot(root, iterationDepth, alpha, beta);
+            rootMove = -1;
+            int score;
+            if(result == null){
+                score = searchRoot(root, depth, -NegamaxSearch.INFINITY, NegamaxSearch.INFINITY);
+            } else if(mtdf && table != null){
+                score = NegamaxSearch.mtdf(search, limits::isStopped, result.getScore());
+            } else {
+                score = NegamaxSearch.aspirationSearch(search, limits::isStopped, result.getScore(), aspirationWindow);
+            }
+            if(limits.isStopped()){
+                break;
+            }
+            int[] line = getPrincipalVariation(root, rootMove, depth);
+            result = new SearchResult(rootMove, score, depth, line, nodes.sum());
+        }
+        return result;
+    }
+
+    /**
+     * This method searches the root with a window on the pool. The best move is kept when it's better than alpha,
+     * otherwise only an upper bound of the score of every move is known.
+     */
+    private int searchRoot(SearchPosition root, int depth, int alpha, int beta){
+        NodeTask task = new NodeTask(root.copy(), depth, alpha, beta, null);
+        task.isRoot = true;
+        int score = pool.invoke(task);
+        if(!limits.isStopped() && score > alpha){
+            rootMove = task.bestMove;
+        }
+        return score;
+    }
+
+    /**
+     * This method returns the amount of positions visited so far.
+     *
+     * @return the amount of nodes.
+     */
+    public long getNodes(){
+        return nodes.sum();
+    }
+
+    /**
+     * This method finds the principal variation by following the best moves stored in the transposition table.
+     */
+    private int[] getPrincipalVariation(SearchPosition root, int bestMove, int depth){
+        ArrayList<Integer> line = new ArrayList<>();
+        if(bestMove == -1){
+            return new int[0];
+        }
+        SearchPosition position = root.copy();
+        MoveList moves = new MoveList();
+        int move = bestMove;
+        while(line.size() < depth){
+            position.generateMoves(moves);
+            if(!moves.contains(move)){
+                break;
+            }
+            line.add(move);
+            position.doMove(move);
+            if(table == null){
+                break;
+            }
+            long entry = table.probe(position.hash());
+            move = entry != 0 ? TranspositionTable.getMove(entry) : -1;
+        }
+
+        int[] result = new int[line.size()];
+        for(int i = 0; i < result.length; i++){
+            result[i] = line.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Split point of a node, this is shared by all younger brothers of that node. The best score is the highest
+     * score of all brothers that are done, and alpha is raised with it. Once the best score reaches beta the node
+     * is cut off, and every task below it stops.
+     */
+    static final class SplitPoint {
+
+        private final SplitPoint parent;
+        private final int beta;
+        private volatile int alpha;
+        private volatile boolean cutoff;
+        private int bestScore;
+        private int bestMove;
+
+        SplitPoint(SplitPoint parent, int alpha, int beta, int bestScore, int bestMove) {
+            this.parent = parent;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.bestScore = bestScore;
+            this.bestMove = bestMove;
+        }
+
+        /**
+         * This method adds the score of a brother that is done.
+         */
+        synchronized void update(int score, int move){
+            if(score > bestScore){
+                bestScore = score;
+                bestMove = move;
+                if(score > alpha){
+                    alpha = score;
+                    if(score >= beta){
+                        cutoff = true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * This method checks if this split point or one of the split points above it has been cut off.
+         */
+        boolean isCutoff(){
+            for(SplitPoint point = this; point != null; point = point.parent){
+                if(point.cutoff){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Task that searches one node. Younger brothers read their window from the split point of their parent when
+     * they start, so they use the best bound that is known at that moment. They first search with a null window
+     * just above that bound, and search again with the full window when they turn out to be better.
+     */
+    private final class NodeTask extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SearchPosition position;
+        private final int depth;
+        private int alpha;
+        private int beta;
+        private final SplitPoint parent;
+
+        // For younger brothers: the move that leads to this node, it's reported to the split point of the parent.
+        private int move = -1;
+        private boolean younger;
+
+        // For the root: the best move found.
+        private boolean isRoot;
+        private int bestMove = -1;
+
+        NodeTask(SearchPosition position, int depth, int alpha, int beta, SplitPoint parent) {
+            this.position = position;
+            this.depth = depth;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.parent = parent;
+        }
+
+        /**
+         * Constructor for a younger brother, the window is set when the task starts.
+         */
+        NodeTask(SearchPosition position, int depth, SplitPoint parent, int move) {
+            this(position, depth, 0, 0, parent);
+            this.move = move;
+            this.younger = true;
+        }
+
+        @Override
+        protected Integer compute() {
+            if(younger){
+                int parentAlpha = parent.alpha;
+                alpha = -parentAlpha - 1;
+                beta = -parentAlpha;
+            }
+            if(isAborted()){
+                return 0;
+            }
+
+            int score = search();
+            if(younger && !isAborted() && -score > parent.alpha && -score < parent.beta){
+                alpha = -parent.beta;
+                beta = -parent.alpha;
+                score = search();
+            }
+            if(younger && !isAborted()){
+                parent.update(-score, move);
+            }
+            return score;
+        }
+
+        /**
+         * This method checks if the search stopped or if a node above this one has been cut off. The score of
+         * an aborted task isn't valid.
+         */
+        private boolean isAborted(){
+            return limits.isStopped() || parent != null && parent.isCutoff();
+        }
+
+        /**
+         * This method searches the node, splitting it when it's deep enough.
+         */
+        private int search(){
+            if(!isRoot && (depth < MIN_SPLIT_DEPTH || position.isTerminal())){
+                return searchAlone();
+            }
+
+            long key = position.hash();
+            int alphaOrig = alpha;
+            int hashMove = -1;
+            if(table != null){
+                long entry = table.probe(key);
+                if(entry != 0){
+                    hashMove = TranspositionTable.getMove(entry);
+                    if(!isRoot && TranspositionTable.getDepth(entry) >= depth){
+                        int score = TranspositionTable.getScore(entry);
+                        switch(TranspositionTable.getBound(entry)){
+                            case TranspositionTable.EXACT:
+                                return score;
+                            case TranspositionTable.LOWER:
+                                if(score > alpha) alpha = score;
+                                break;
+                            case TranspositionTable.UPPER:
+                                if(score < beta) beta = score;
+                                break;
+                        }
+                        if(alpha >= beta) return score;
+                    }
+                }
+            }
+
+            // The shallow searches of the selective pruning are not worth splitting.
+            if(!isRoot){
+                NegamaxSearch search = searches.get();
+                int score = search.probCutSubtree(position, depth, alpha, beta, parent);
+                nodes.add(search.getNodes());
+                if(score != NegamaxSearch.NO_CUT){
+                    return score;
+                }
+                if(isAborted()){
+                    return 0;
+                }
+            }
+
+            MoveList moves = new MoveList();
+            position.generateMoves(moves);
+            if(moves.isEmpty() || moves.size() == 1 && !isRoot){
+                return searchAlone();
+            }
+            position.orderMoves(moves);
+            if(hashMove != -1){
+                moves.moveToFront(hashMove);
+            }
+
+            // The eldest brother is searched first by this thread.
+            int eldest = moves.get(0);
+            long undo = position.doMove(eldest);
+            int score = -new NodeTask(position, depth - 1, -beta, -alpha, parent).compute();
+            position.undoMove(eldest, undo);
+            if(isAborted()){
+                return 0;
+            }
+
+            int bestScore = score;
+            int best = eldest;
+            if(score > alpha){
+                alpha = score;
+            }
+
+            // When the eldest brother doesn't cause a cutoff, the younger brothers are searched in parallel.
+            if(alpha < beta && moves.size() > 1){
+                SplitPoint point = new SplitPoint(parent, alpha, beta, bestScore, best);
+                NodeTask[] tasks = new NodeTask[moves.size() - 1];
+                for(int i = 1; i < moves.size(); i++){
+                    SearchPosition child = position.copy();
+                    child.doMove(moves.get(i));
+                    tasks[i - 1] = new NodeTask(child, depth - 1, point, moves.get(i));
+                }
+                ForkJoinTask.invokeAll(tasks);
+                if(isAborted()){
+                    return 0;
+                }
+                synchronized(point){
+                    bestScore = point.bestScore;
+                    best = point.bestMove;
+                }
+            }
+
+            if(table != null){
+                int bound = TranspositionTable.EXACT;
+                if(bestScore <= alphaOrig){
+                    bound = TranspositionTable.UPPER;
+                } else if(bestScore >= beta){
+                    bound = TranspositionTable.LOWER;
+                }
+                table.store(key, depth, bound, bestScore, best);
+            }
+            bestMove = best;
+            return bestScore;
+        }
+
+        /**
+         * This method searches the node with the NegamaxSearch of this thread.
+         */
+        private int searchAlone(){
+            NegamaxSearch search = searches.get();
+            int score = search.searchSubtree(position, depth, alpha, beta, parent);
+            nodes.add(search.getNodes());
+            return score;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package src.gameframework.aistrategies;
+
+import src.gameframework.MoveList;
+
+/**
+ * A position that can be searched by NegamaxSearch. Every game implements this to plug its own move generation
+ * and evaluation into the search. A position keeps track of the player that is to move, moves are always made
+ * for that player.
+ */
+public interface SearchPosition {
+
+    // Move that is used when the player to move has no valid moves and has to pass.
+    int PASS = -1;
+
+    // Score of evaluateMoves for a position that isn't quiet, the search has to deepen it.
+    int UNSTABLE = Integer.MIN_VALUE;
+
+    /**
+     * This method should return the player that is to move.
+     *
+     * @return 1 or 2.
+     */
+    int getPlayer();
+
+    /**
+     * This method should put all valid moves for the player to move in a MoveList. The order of the moves is the
+     * order they will be searched in, so good moves should be first when that's cheap to do.
+     *
+     * @param moves the list that will be filled, the list is cleared first.
+     */
+    void generateMoves(MoveList moves);
+
+    /**
+     * This method should sort moves from generateMoves, the most promising moves first. The search only calls this
+     * where enough of the tree is left below to earn back the cost. The sort should be stable, moves that are
+     * equally promising keep the order they already had.
+     *
+     * @param moves the moves to sort.
+     */
+    void orderMoves(MoveList moves);
+
+    /**
+     * This method should make a move for the player to move, after which it's the other player's turn.
+     * PASS should only change the player.
+     *
+     * @param move the move to make.
+     * @return undo token for undoMove.
+     */
+    long doMove(int move);
+
+    /**
+     * This method should take back the last move made by doMove.
+     *
+     * @param move the move that was made.
+     * @param undo the undo token returned by doMove.
+     */
+    void undoMove(int move, long undo);
+
+    /**
+     * This method should check if the game is over no matter which moves are left, for example because someone
+     * has 4 in a row. Games that end when nobody can move don't have to check that here, the search detects it.
+     *
+     * @return true if the game is over.
+     */
+    boolean isTerminal();
+
+    /**
+     * This method should evaluate the position for the player to move. Higher is better for the player to move.
+     * This is also called when the game is over, so wins and losses should be scored here too.
+     *
+     * @return the score of the position.
+     */
+    int evaluate();
+
+    /**
+     * This method should evaluate the position like evaluate, but it may skip expensive work when the score is
+     * clearly outside of the window. In that case it returns a bound: at most alpha when the score is below the
+     * window, or at least beta when it's above the window.
+     *
+     * @param alpha the lowest score the player to move is already sure of.
+     * @param beta the highest score the opponent allows.
+     * @return the score of the position, or a bound outside of the window.
+     */
+    int evaluate(int alpha, int beta);
+
+    /**
+     * This method may evaluate the positions after a range of moves at once, which can be much faster than making
+     * every move and evaluating it alone. The scores are like those of evaluate(int, int) after the move, so from
+     * the view of the opponent of the player to move now, or UNSTABLE when the position after the move isn't
+     * quiet. The search only calls this for moves to leafs.
+     *
+     * @param moves the moves.
+     * @param from the index of the first move to evaluate, the moves before it are skipped.
+     * @param alpha the alpha of the positions after the moves.
+     * @param beta the beta of the positions after the moves.
+     * @param scores the array that is filled with the scores, at the same indexes as the moves.
+     * @return true if the moves are evaluated, false if the position doesn't evaluate moves in batches.
+     */
+    boolean evaluateMoves(MoveList moves, int from, int alpha, int beta, int[] scores);
+
+    /**
+     * This method should check if the position is too unstable to evaluate directly. The search deepens the tree
+     * once more for unstable leafs.
+     *
+     * @return true if the position is quiet.
+     */
+    boolean isQuiet();
+
+    /**
+     * This method should return the phase of the game, for search parameters that depend on it like those of
+     * MultiProbCut. Positions in the same phase should have about the same amount of moves left.
+     *
+     * @return the phase, 0 at the start of the game.
+     */
+    int getPhase();
+
+    /**
+     * This method should return a hash of the position, including the player that is to move.
+     *
+     * @return 64 bit hash.
+     */
+    long hash();
+
+    /**
+     * This method should return a copy of this position that can be searched by another thread.
+     *
+     * @return the copy.
+     */
+    SearchPosition copy();
+}
@@ -0,0 +1,51 @@
+package src.gameframework.aistrategies;
+
+/**
+ * The result of a search: the best move, its score and the principal variation, the line of moves both players
+ * are expected to play.
+ */
+public class SearchResult {
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final int[] principalVariation;
+    private final long nodes;
+
+    /**
+     * Constructor for SearchResult.
+     *
+     * @param move the best move, -1 if there is none.
+     * @param score the score of the best move for the player to move.
+     * @param depth the depth of the last completed search.
+     * @param principalVariation the expected line of moves, starting with the best move.
+     * @param nodes the amount of positions visited.
+     */
+    public SearchResult(int move, int score, int depth, int[] principalVariation, long nodes) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.principalVariation = principalVariation;
+        this.nodes = nodes;
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,195 @@
+package src.gameframework.aistrategies;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size transposition table that can be shared by all search threads without locking.
+ *
+ * Every entry is stored as two longs, the key XORed with the data, and the data itself. The data is a packed long
+ * with the score, best move, depth and bound type. When an entry is read the key is recovered by XORing both longs
+ * again, so an entry that was half overwritten by another thread simply doesn't match and is treated as a miss.
+ *
+ * Entries are grouped in buckets of two. The first slot keeps the entry with the highest depth, the second slot
+ * is always replaced, so deep results survive while recent shallow results are still stored.
+ *
+ * The table is kept between the moves of a game. Every search has a generation number, and entries of older
+ * searches can always be replaced, so deep entries of positions that can't be reached anymore don't fill up the
+ * table.
+ */
+public class TranspositionTable {
+
+    // Bound types, these tell how the score of an entry relates to the real score of the position.
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    // Amount of longs per bucket, two slots of two longs.
+    private static final int BUCKET_SIZE = 4;
+
+    // Layout of the data of an entry.
+    private static final int MOVE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 24;
+    private static final int BOUND_SHIFT = 32;
+    private static final int GENERATION_SHIFT = 40;
+    private static final int GENERATIONS = 256;
+
+    private final long[] table;
+    private final int bucketMask;
+
+    // Generation of the current search. This only changes between searches, starting a search publishes it to
+    // the search threads.
+    private int generation;
+
+    /**
+     * Constructor that creates a table that uses at most the given amount of memory.
+     *
+     * @param megabytes the memory budget in MB.
+     */
+    public TranspositionTable(int megabytes) {
+        long buckets = Math.max(1L, (long) megabytes * 1024 * 1024 / (BUCKET_SIZE * 8));
+        // Round down to a power of two so the bucket can be found with a mask.
+        int bucketCount = (int) Math.min(Long.highestOneBit(buckets), 1 << 26);
+        table = new long[bucketCount * BUCKET_SIZE];
+        bucketMask = bucketCount - 1;
+    }
+
+    /**
+     * This method looks up a position.
+     *
+     * @param key the hash of the position.
+     * @return the data of the entry, or 0 if the position isn't in the table.
+     */
+    public long probe(long key){
+        int index = bucketIndex(key);
+        long data = table[index + 1];
+        if((table[index] ^ data) == key){
+            return data;
+        }
+        data = table[index + 3];
+        if((table[index + 2] ^ data) == key){
+            return data;
+        }
+        return 0;
+    }
+
+    /**
+     * This method stores the result of a search.
+     *
+     * @param key the hash of the position.
+     * @param depth the depth the position was searched to.
+     * @param bound the bound type of the score, UPPER, LOWER or EXACT.
+     * @param score the score of the position, this has to fit in 16 bits.
+     * @param move the best move found, or -1 if there is none.
+     */
+    public void store(long key, int depth, int bound, int score, int move){
+        long data = (score & 0xFFFFL)
+                | ((long) ((move + 1) & 0xFF) << MOVE_SHIFT)
+                | ((long) Math.min(Math.max(depth, 0), 255) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+
+        int index = bucketIndex(key);
+        long oldData = table[index + 1];
+        if((table[index] ^ oldData) == key || depth >= getDepth(oldData) || getGeneration(oldData) != generation){
+            table[index] = key ^ data;
+            table[index + 1] = data;
+        } else {
+            table[index + 2] = key ^ data;
+            table[index + 3] = data;
+        }
+    }
+
+    /**
+     * This method stores only the best move of a position, as a hint for the move ordering. The hint has depth 0
+     * and a lower bound that never cuts off. It always goes in the second slot of the bucket, so it never replaces
+     * a deeper entry in the first slot, even one of an older search.
+     *
+     * @param key the hash of the position.
+     * @param move the best move.
+     */
+    public void storeHint(long key, int move){
+        long data = (-NegamaxSearch.INFINITY & 0xFFFFL)
+                | ((long) ((move + 1) & 0xFF) << MOVE_SHIFT)
+                | ((long) LOWER << BOUND_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+
+        int index = bucketIndex(key);
+        table[index + 2] = key ^ data;
+        table[index + 3] = data;
+    }
+
+    /**
+     * This method tells the table a new search starts. Entries of earlier searches are kept, but they are the
+     * first to be replaced.
+     */
+    public void newSearch(){
+        generation = (generation + 1) % GENERATIONS;
+    }
+
+    /**
+     * This method removes all entries from the table.
+     */
+    public void clear(){
+        Arrays.fill(table, 0);
+        generation = 0;
+    }
+
+    /**
+     * This method returns the score of an entry.
+     *
+     * @param data the data returned by probe.
+     * @return the score.
+     */
+    public static int getScore(long data){
+        return (short) data;
+    }
+
+    /**
+     * This method returns the best move of an entry.
+     *
+     * @param data the data returned by probe.
+     * @return the best move, or -1 if there is none.
+     */
+    public static int getMove(long data){
+        return (int) ((data >>> MOVE_SHIFT) & 0xFF) - 1;
+    }
+
+    /**
+     * This method returns the depth of an entry.
+     *
+     * @param data the data returned by probe.
+     * @return the depth.
+     */
+    public static int getDepth(long data){
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    /**
+     * This method returns the bound type of an entry.
+     *
+     * @param data the data returned by probe.
+     * @return UPPER, LOWER or EXACT.
+     */
+    public static int getBound(long data){
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    /**
+     * This method returns the generation of the search that stored an entry.
+     *
+     * @param data the data returned by probe.
+     * @return the generation.
+     */
+    public static int getGeneration(long data){
+        return (int) ((data >>> GENERATION_SHIFT) & (GENERATIONS - 1));
+    }
+
+    /**
+     * This method finds the first long of the bucket a key belongs to.
+     */
+    private int bucketIndex(long key){
+        // Use the high bits, the low bits of a Zobrist key are just as random but this keeps them free for
+        // other tables that are indexed with the same key.
+        return ((int) (key >>> 32) & bucketMask) * BUCKET_SIZE;
+    }
+}
@@ -1,6 +1,7 @@
 package src.gamemodules.connectfourgame;
 
 import src.gameframework.GameBoardLogic;
+import src.gameframework.Zobrist;
 
 /**
  * This class implements the game board logic for the game Connect Four.
@@ -15,6 +16,9 @@ public class ConnectFourBoardLogic extends GameBoardLogic {
     public static final String ANSI_YELLOW = "\u001B[33m";
     public static final String ANSI_RED = "\u001B[31m";
 
+    // Zobrist keys for the 42 positions of the connect four board.
+    private static final long[] ZOBRIST_KEYS = Zobrist.createKeys(42, 0x436F6E6E656374L);
+
     /**
      * This method initialises the default gameBoard for connect four.
      */
@@ -56,6 +60,16 @@ public class ConnectFourBoardLogic extends GameBoardLogic {
         }
     }
 
+    /**
+     * This method returns the Zobrist key table for connect four.
+     *
+     * @return the key table.
+     */
+    @Override
+    protected long[] getZobristKeys() {
+        return ZOBRIST_KEYS;
+    }
+
     /**
      * This method returns the name of the game.
      *
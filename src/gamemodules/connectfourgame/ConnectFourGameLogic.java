@@ -3,6 +3,7 @@ package src.gamemodules.connectfourgame;
 import java.util.ArrayList;
 
 import src.gameframework.GameLogic;
+import src.gameframework.MoveList;
 
 public class ConnectFourGameLogic extends GameLogic {
 
@@ -15,20 +16,24 @@ public class ConnectFourGameLogic extends GameLogic {
     }
 
 	@Override
-	public ArrayList<Integer> getMoves(int player) {
-        ArrayList<Integer> result = new ArrayList<>();
-        
+	public void generateMoves(int player, MoveList moves) {
+        moves.clear();
         for(int col = 0; col < 7; col++){
             if(getBoard().getBoardPos(col) == 0){
-                result.add(col);
+                moves.add(col);
             }
         }
-
-        return result;
 	}
 
+    /**
+     * This method drops a disc in a column.
+     *
+     * @param pos the column of the move.
+     * @param player player that is making the move.
+     * @return the position the disc ended up at.
+     */
 	@Override
-	public void doMove(int pos, int player) {
+	public long doMove(int pos, int player) {
         int move = -1;
         int oldPos = pos;
 
@@ -43,6 +48,18 @@ public class ConnectFourGameLogic extends GameLogic {
         }
 
         getBoard().setBoardPos(move, player);
+        return move;
+	}
+
+    /**
+     * This method takes back a move by removing the disc that was dropped.
+     *
+     * @param pos the column of the move.
+     * @param undo the position returned by doMove.
+     */
+	@Override
+	public void undoMove(int pos, long undo) {
+        getBoard().setBoardPos((int) undo, 0);
 	}
 
 	@Override
@@ -72,7 +89,7 @@ public class ConnectFourGameLogic extends GameLogic {
     }
 
     public boolean isValid(int col){
-        return getBoard().getBoardPos(col) == 0;
+        return col >= 0 && col < 7 && getBoard().getBoardPos(col) == 0;
     }
 
     public boolean isCombination(int pos, int len, boolean vul){
@@ -190,7 +207,7 @@ public class ConnectFourGameLogic extends GameLogic {
 
 	@Override
 	public boolean isValid(int move, int player) {
-		return getMoves(player).contains(move);
+		return isValid(move);
     }
     
     public boolean midEmpty(){
@@ -0,0 +1,101 @@
+package src.gamemodules.connectfourgame;
+
+import src.gameframework.GameBoardLogic;
+import src.gameframework.MoveList;
+import src.gameframework.aistrategies.GameLogicPosition;
+import src.gameframework.aistrategies.SearchPosition;
+
+/**
+ * Connect four position for our negamax search. Moves are generated from the middle to the sides, moves in the
+ * middle are usually better so this gives more pruning.
+ */
+public class ConnectFourSearchPosition extends GameLogicPosition {
+
+    private static final int[] MOVE_ORDER = new int[] {3, 2, 4, 1, 5, 0, 6};
+
+    // The board is owned by this position, moves are made and taken back on it.
+    private GameBoardLogic board;
+    private ConnectFourGameLogic logic;
+
+    /**
+     * Constructor for ConnectFourSearchPosition. The board is copied, so the board that is passed isn't changed
+     * by the search.
+     *
+     * @param board the gameBoard that should be searched.
+     * @param player the player that is to move.
+     */
+    public ConnectFourSearchPosition(GameBoardLogic board, int player){
+        this(copyLogic(board), player);
+    }
+
+    private ConnectFourSearchPosition(ConnectFourGameLogic logic, int player){
+        super(logic, player);
+        this.logic = logic;
+        this.board = logic.getBoard();
+    }
+
+    /**
+     * This method creates logic with a copy of a board.
+     */
+    private static ConnectFourGameLogic copyLogic(GameBoardLogic board){
+        ConnectFourBoardLogic newBoard = new ConnectFourBoardLogic();
+        newBoard.setBoard(board.getBoard());
+        ConnectFourGameLogic newLogic = new ConnectFourGameLogic();
+        newLogic.setBoard(newBoard);
+        return newLogic;
+    }
+
+    /**
+     * This method puts all valid moves in the list, starting in the middle.
+     *
+     * @param moves the list that will be filled.
+     */
+    @Override
+    public void generateMoves(MoveList moves) {
+        moves.clear();
+        for(int move : MOVE_ORDER){
+            if(logic.isValid(move)){
+                moves.add(move);
+            }
+        }
+    }
+
+    /**
+     * This method evaluates the board for the player to move. Every combination that can still turn into 4 in
+     * a row is worth 1 point. A win is worth 2 points for every empty position plus 2, so faster wins are
+     * preferred.
+     *
+     * @return the score of the board.
+     */
+    @Override
+    public int evaluate() {
+        // Check for every non empty pos if there is 3 in a row
+        int combo = 0;
+        int empty = 0;
+        for(int pos = 0; pos < board.getBoard().length; pos++){
+            if(board.getBoardPos(pos) == 0){
+                empty++;
+            } else if(logic.isCombination(pos, 4, true)){
+                combo = board.getBoardPos(pos) == 1 ? combo + 1 : combo - 1;
+            }
+        }
+
+        int score;
+        switch(logic.gameOver()){
+            case 1:
+                score = 2 * (empty + 1) + combo;
+                break;
+            case 2:
+                score = -2 * (empty + 1) + combo;
+                break;
+            default:
+                score = combo;
+        }
+        return getPlayer() == 1 ? score : -score;
+    }
+
+    @Override
+    public SearchPosition copy() {
+        return new ConnectFourSearchPosition(board, getPlayer());
+    }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Random;
 
 import src.gameframework.GameBoardLogic;
+import src.gameframework.GameLogic;
 import src.gameframework.aistrategies.MinimaxStrategy;
 
 /**
@@ -16,7 +17,7 @@ public class ConnectFourSimpleStrategy extends MinimaxStrategy {
     Random random = new Random();
 
     @Override
-    public int getBestMove(GameBoardLogic board, int player) {
+    protected int findBestMove(GameBoardLogic board, int player) {
         ConnectFourGameLogic logic = new ConnectFourGameLogic();
         logic.setBoard(board);
         
@@ -69,4 +70,16 @@ public class ConnectFourSimpleStrategy extends MinimaxStrategy {
         // Choose a random move if there is no winning or not losing move.
         return moves.get(random.nextInt(moves.size()));
     }
+
+    /**
+     * This method creates connect four logic with a new board.
+     *
+     * @return the game logic.
+     */
+    @Override
+    protected GameLogic createGameLogic() {
+        ConnectFourGameLogic logic = new ConnectFourGameLogic();
+        logic.setBoard(new ConnectFourBoardLogic());
+        return logic;
+    }
 }
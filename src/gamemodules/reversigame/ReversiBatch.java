@@ -0,0 +1,95 @@
+package src.gamemodules.reversigame;
+
+/**
+ * The positions after the moves of one position, stored as a structure of arrays. The moves of all positions and
+ * the orientations the pattern evaluation needs are found in loops over the whole batch.
+ *
+ * When the jdk.incubator.vector module is available those loops use the Vector API, see ReversiVectorKernel. The
+ * kernel is loaded by name only then, so the rest of the code doesn't need the module. Without it the plain loops
+ * of ReversiBitboard and ReversiPatternEvaluator are used, the JIT may vectorize those itself.
+ */
+final class ReversiBatch {
+
+    // A position has at most 64 moves.
+    static final int CAPACITY = 64;
+
+    // Name of the Vector API kernel, it's only compiled when the module is added, see the README.
+    private static final String VECTOR_KERNEL = "src.gamemodules.reversigame.ReversiVectorKernel";
+
+    private static final ReversiBatchKernel KERNEL = loadKernel();
+
+    // The discs and moves of every position, from the view of the player to move in that position.
+    final long[] own = new long[CAPACITY];
+    final long[] opponent = new long[CAPACITY];
+    final long[] ownMoves = new long[CAPACITY];
+    final long[] opponentMoves = new long[CAPACITY];
+
+    // The discs in the orientations of ReversiPatternEvaluator.getOrientations, found by findOrientations.
+    final long[][] ownOrientations = new long[ReversiPatternEvaluator.ORIENTATIONS][CAPACITY];
+    final long[][] opponentOrientations = new long[ReversiPatternEvaluator.ORIENTATIONS][CAPACITY];
+
+    // Scores of the evaluation of every position.
+    final int[] scores = new int[CAPACITY];
+
+    // Amount of positions in the batch.
+    int count;
+
+    /**
+     * This method finds the valid moves of the player to move of every position, and of the opponent when asked.
+     *
+     * @param opponents true to find the moves of the opponent as well.
+     */
+    void findMoves(boolean opponents){
+        if(KERNEL != null){
+            KERNEL.getMoves(own, opponent, ownMoves, count);
+            if(opponents){
+                KERNEL.getMoves(opponent, own, opponentMoves, count);
+            }
+        } else {
+            ReversiBitboard.getMoves(own, opponent, ownMoves, count);
+            if(opponents){
+                ReversiBitboard.getMoves(opponent, own, opponentMoves, count);
+            }
+        }
+    }
+
+    /**
+     * This method finds the discs of both players of every position in every orientation of the pattern
+     * evaluation.
+     */
+    void findOrientations(){
+        if(KERNEL != null){
+            KERNEL.getOrientations(own, ownOrientations, count);
+            KERNEL.getOrientations(opponent, opponentOrientations, count);
+        } else {
+            ReversiPatternEvaluator.getOrientations(own, ownOrientations, count);
+            ReversiPatternEvaluator.getOrientations(opponent, opponentOrientations, count);
+        }
+    }
+
+    /**
+     * This method checks if the loops over batches use the Vector API.
+     *
+     * @return true if the Vector API kernel is loaded.
+     */
+    static boolean isVectorized(){
+        return KERNEL != null;
+    }
+
+    /**
+     * This method loads the Vector API kernel when the jdk.incubator.vector module is in the boot layer, the module
+     * is only there when the JVM is started with --add-modules jdk.incubator.vector.
+     *
+     * @return the kernel, or null to use the plain loops.
+     */
+    private static ReversiBatchKernel loadKernel(){
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()){
+            return null;
+        }
+        try {
+            return (ReversiBatchKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch(ReflectiveOperationException | LinkageError e){
+            return null;
+        }
+    }
+}
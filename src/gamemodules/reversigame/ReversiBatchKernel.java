@@ -0,0 +1,29 @@
+package src.gamemodules.reversigame;
+
+/**
+ * The loops over a whole batch of positions that can run on SIMD registers, see ReversiBatch. An implementation
+ * with the Vector API is loaded when the jdk.incubator.vector module is available, see ReversiVectorKernel.
+ */
+interface ReversiBatchKernel {
+
+    /**
+     * This method should find all valid moves of a batch of positions, like
+     * ReversiBitboard.getMoves(long[], long[], long[], int).
+     *
+     * @param players the discs of the player to move of every position.
+     * @param opponents the discs of the opponent of every position.
+     * @param moves the array that is filled with the valid moves of every position.
+     * @param count the amount of positions.
+     */
+    void getMoves(long[] players, long[] opponents, long[] moves, int count);
+
+    /**
+     * This method should mirror the discs of a batch of positions in the orientations the pattern evaluation
+     * needs, like ReversiPatternEvaluator.getOrientations.
+     *
+     * @param discs the discs of every position.
+     * @param orientations the arrays that are filled with the discs in every orientation.
+     * @param count the amount of positions.
+     */
+    void getOrientations(long[] discs, long[][] orientations, int count);
+}
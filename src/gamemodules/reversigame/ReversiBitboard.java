@@ -0,0 +1,183 @@
+package src.gamemodules.reversigame;
+
+import src.gameframework.GameBoardLogic;
+
+/**
+ * Bitboard functions for reversi. A position is stored as two longs, one for the discs of the player to move and
+ * one for the discs of the opponent. Bit n is set when there is a disc on position n of the board, so the bits
+ * use the same numbering as ReversiBoardLogic.
+ *
+ * Moves and flips are found for all 8 directions at once by shifting whole boards, instead of walking over the
+ * board one position at a time.
+ */
+public final class ReversiBitboard {
+
+    // Shift for every direction, positive shifts move discs to a higher position.
+    private static final int[] DIRECTIONS = {1, -1, 8, -8, 9, -9, 7, -7};
+
+    // All positions except the left and right column. Discs on these columns can't be flipped horizontally or
+    // diagonally, and masking them stops shifts from wrapping around to the next row.
+    private static final long NOT_SIDE_COLUMNS = 0x7E7E7E7E7E7E7E7EL;
+    private static final long LEFT_COLUMN = 0x0101010101010101L;
+    private static final long RIGHT_COLUMN = 0x8080808080808080L;
+
+    private ReversiBitboard() {
+    }
+
+    /**
+     * This method creates a bitboard with the discs of one player.
+     *
+     * @param board the board to read.
+     * @param player the player whose discs are read.
+     * @return the bitboard.
+     */
+    public static long fromBoard(GameBoardLogic board, int player){
+        long discs = 0;
+        for(int pos = 0; pos < 64; pos++){
+            if(board.getBoardPos(pos) == player){
+                discs |= 1L << pos;
+            }
+        }
+        return discs;
+    }
+
+    /**
+     * This method finds all valid moves. For every direction the discs of the opponent next to a disc of the
+     * player are filled with a Kogge-Stone fill, an empty position right after such a line is a valid move.
+     *
+     * @param player the discs of the player to move.
+     * @param opponent the discs of the opponent.
+     * @return a bitboard with a bit set for every valid move.
+     */
+    public static long getMoves(long player, long opponent){
+        long empty = ~(player | opponent);
+        long horizontal = opponent & NOT_SIDE_COLUMNS;
+        return getMoves(player, horizontal, empty, 1)
+                | getMoves(player, horizontal, empty, -1)
+                | getMoves(player, opponent, empty, 8)
+                | getMoves(player, opponent, empty, -8)
+                | getMoves(player, horizontal, empty, 9)
+                | getMoves(player, horizontal, empty, -9)
+                | getMoves(player, horizontal, empty, 7)
+                | getMoves(player, horizontal, empty, -7);
+    }
+
+    /**
+     * This method finds all valid moves of a batch of positions, see getMoves(long, long). The positions are
+     * stored as a structure of arrays and every direction is one loop over the whole batch, without branches, so
+     * the JIT can run the loops on SIMD registers.
+     *
+     * @param players the discs of the player to move of every position.
+     * @param opponents the discs of the opponent of every position.
+     * @param moves the array that is filled with the valid moves of every position.
+     * @param count the amount of positions.
+     */
+    public static void getMoves(long[] players, long[] opponents, long[] moves, int count){
+        for(int i = 0; i < count; i++){
+            moves[i] = 0;
+        }
+        addMoves(players, opponents, moves, count, 1, NOT_SIDE_COLUMNS);
+        addMoves(players, opponents, moves, count, 8, -1L);
+        addMoves(players, opponents, moves, count, 9, NOT_SIDE_COLUMNS);
+        addMoves(players, opponents, moves, count, 7, NOT_SIDE_COLUMNS);
+    }
+
+    /**
+     * This method adds the valid moves in one direction and the opposite direction to the moves of a batch of
+     * positions, with the same fill as getMoves(long, long, long, int).
+     */
+    private static void addMoves(long[] players, long[] opponents, long[] moves, int count, int dir, long mask){
+        for(int i = 0; i < count; i++){
+            long player = players[i];
+            long opponent = opponents[i] & mask;
+            long empty = ~(player | opponents[i]);
+
+            long up = opponent & player << dir;
+            up |= opponent & up << dir;
+            long upOpen = opponent & opponent << dir;
+            up |= upOpen & up << 2 * dir;
+            upOpen &= upOpen << 2 * dir;
+            up |= upOpen & up << 4 * dir;
+
+            long down = opponent & player >>> dir;
+            down |= opponent & down >>> dir;
+            long downOpen = opponent & opponent >>> dir;
+            down |= downOpen & down >>> 2 * dir;
+            downOpen &= downOpen >>> 2 * dir;
+            down |= downOpen & down >>> 4 * dir;
+
+            moves[i] |= (up << dir | down >>> dir) & empty;
+        }
+    }
+
+    /**
+     * This method finds the valid moves in one direction.
+     */
+    private static long getMoves(long player, long opponent, long empty, int dir){
+        // Lines of opponent discs that start next to a disc of the player, found in 3 doubling steps.
+        long line = opponent & shift(player, dir);
+        line |= opponent & shift(line, dir);
+        long open = opponent & shift(opponent, dir);
+        line |= open & shift(line, 2 * dir);
+        open &= shift(open, 2 * dir);
+        line |= open & shift(line, 4 * dir);
+        return shift(line, dir) & empty;
+    }
+
+    /**
+     * This method finds the discs that are flipped by a move.
+     *
+     * @param move the position of the move.
+     * @param player the discs of the player to move.
+     * @param opponent the discs of the opponent.
+     * @return a bitboard with a bit set for every disc that is flipped, 0 if the move isn't valid.
+     */
+    public static long getFlips(int move, long player, long opponent){
+        long flips = 0;
+        long bit = 1L << move;
+        long horizontal = opponent & NOT_SIDE_COLUMNS;
+        for(int dir : DIRECTIONS){
+            long line = dir == 8 || dir == -8 ? opponent : horizontal;
+            long flipped = 0;
+            long next = shift(bit, dir) & line;
+            while(next != 0){
+                flipped |= next;
+                next = shift(next, dir);
+                if((next & player) != 0){
+                    flips |= flipped;
+                    break;
+                }
+                next &= line;
+            }
+        }
+        return flips;
+    }
+
+    /**
+     * This method finds all positions next to at least one disc, in any of the 8 directions.
+     *
+     * @param discs the discs.
+     * @return a bitboard with the neighbours of the discs, this can include the discs themselves.
+     */
+    public static long getNeighbours(long discs){
+        long row = discs | (discs << 1 & ~LEFT_COLUMN) | (discs >>> 1 & ~RIGHT_COLUMN);
+        return row | row << 8 | row >>> 8;
+    }
+
+    /**
+     * This method returns the amount of discs on a bitboard.
+     *
+     * @param discs the bitboard.
+     * @return the amount of discs.
+     */
+    public static int count(long discs){
+        return Long.bitCount(discs);
+    }
+
+    /**
+     * This method shifts a bitboard in a direction, negative shifts move discs to a lower position.
+     */
+    private static long shift(long discs, int dir){
+        return dir > 0 ? discs << dir : discs >>> -dir;
+    }
+}
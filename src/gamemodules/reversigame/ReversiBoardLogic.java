@@ -1,12 +1,16 @@
 package src.gamemodules.reversigame;
 
 import src.gameframework.GameBoardLogic;
+import src.gameframework.Zobrist;
 
 /**
  * This class implements the game board logic for the game Reversi.
  */
 public class ReversiBoardLogic extends GameBoardLogic {
 
+    // Zobrist keys for the 64 positions of the reversi board, the bitboard search uses them too.
+    static final long[] ZOBRIST_KEYS = Zobrist.createKeys(64, 0x52657665727369L);
+
     /**
      * This method initialises the default gameBoard for reversi.
      */
@@ -44,6 +48,16 @@ public class ReversiBoardLogic extends GameBoardLogic {
         System.out.println("-=-=-=-=-=-=-=-=-=-=-");
     }
 
+    /**
+     * This method returns the Zobrist key table for reversi.
+     *
+     * @return the key table.
+     */
+    @Override
+    protected long[] getZobristKeys() {
+        return ZOBRIST_KEYS;
+    }
+
     /**
      * This method returns the name of the game.
      *
@@ -0,0 +1,372 @@
+package src.gamemodules.reversigame;
+
+import java.util.Arrays;
+
+import src.gameframework.SearchLimits;
+import src.gameframework.aistrategies.SearchResult;
+
+/**
+ * Exact solver for the end of a game of reversi. Near the end of the game the whole tree can be searched, so
+ * instead of an evaluation the solver finds the real result of every move: the final difference in discs with
+ * perfect play by both players. Empty positions at the end count for the winner.
+ *
+ * The first move of every node is searched with the full window, the other moves only with a null window to prove
+ * they are not better (principal variation search). Moves that leave the opponent the fewest moves are searched
+ * first, and when only a few positions are left moves in regions with an odd number of empty positions go first.
+ * The last 3 empty positions are searched without generating moves at all.
+ *
+ * Positions with many empty positions left are stored in a small hash table of the solver, with the bounds of their
+ * score and their best move. This table is separate from the table of the midgame search, because the scores are
+ * disc differences instead of evaluations. The scores are exact results of the game, so the table stays correct
+ * between solves and is only cleared for a new game.
+ */
+public class ReversiEndgameSolver {
+
+    // Amount of nodes between two checks of the search limits, this has to be a power of two.
+    private static final int CHECK_INTERVAL = 1024;
+
+    // With this many empty positions or less, moves are ordered by parity only. Counting the moves of the opponent
+    // for every move costs more than it saves here.
+    private static final int FASTEST_FIRST_EMPTIES = 7;
+
+    // With this many empty positions or less, the empty positions are tried directly instead of generating moves.
+    private static final int SHALLOW_EMPTIES = 3;
+
+    // Only positions with this many empty positions or more are stored in the hash table, and its size in bits.
+    private static final int HASH_EMPTIES = 10;
+    private static final int HASH_BITS = 18;
+
+    // The 4 quadrants of the board, the parity of the empty positions is tracked per quadrant.
+    private static final long[] QUADRANTS = {
+            0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L
+    };
+
+    private SearchLimits limits;
+    private long nodes;
+    private boolean aborted;
+
+    // Best move of the last node at ply 1 that was searched, this is the reply to the move of the root.
+    private int reply;
+
+    // Reusable lists for move ordering, one per ply. A game has at most 60 moves and 60 passes left.
+    private final int[][] orderMoves = new int[128][64];
+    private final int[][] orderScores = new int[128][64];
+
+    // Hash table with the discs of the position, and the lower bound, upper bound and best move packed in an int.
+    private final long[] hashPlayer = new long[1 << HASH_BITS];
+    private final long[] hashOpponent = new long[1 << HASH_BITS];
+    private final int[] hashData = new int[1 << HASH_BITS];
+
+    /**
+     * This method empties the hash table, this should be called before the solver is used in a new game.
+     */
+    public void clear(){
+        Arrays.fill(hashPlayer, 0);
+        Arrays.fill(hashOpponent, 0);
+        Arrays.fill(hashData, 0);
+    }
+
+    /**
+     * This method solves a position and finds the best move.
+     *
+     * @param player the discs of the player to move, this player has to have a valid move.
+     * @param opponent the discs of the opponent.
+     * @param limits the limits of the search, the solver gives up when they are reached.
+     * @return the best move with the exact final disc difference as score, or null if the limits were reached
+     *         before the position was solved.
+     */
+    public SearchResult solve(long player, long opponent, SearchLimits limits){
+        this.limits = limits;
+        nodes = 0;
+        aborted = false;
+        int empties = 64 - ReversiBitboard.count(player | opponent);
+
+        int count = orderMoves(player, opponent, ReversiBitboard.getMoves(player, opponent), empties, 0, -1);
+        int[] moves = orderMoves[0];
+        int alpha = -65;
+        int beta = 65;
+        int bestMove = -1;
+        int bestReply = -1;
+        for(int i = 0; i < count; i++){
+            int move = moves[i];
+            long flips = ReversiBitboard.getFlips(move, player, opponent);
+            long newPlayer = player | flips | 1L << move;
+            long newOpponent = opponent & ~flips;
+
+            reply = -1;
+            int score;
+            if(bestMove == -1){
+                score = -solve(newOpponent, newPlayer, -beta, -alpha, 1, false);
+            } else {
+                score = -solve(newOpponent, newPlayer, -alpha - 1, -alpha, 1, false);
+                if(score > alpha && !aborted){
+                    score = -solve(newOpponent, newPlayer, -beta, -alpha, 1, false);
+                }
+            }
+            if(aborted){
+                return null;
+            }
+            if(score > alpha){
+                alpha = score;
+                bestMove = move;
+                bestReply = reply;
+            }
+        }
+
+        // The reply is part of the principal variation, so the AI can ponder on it. It's missing when the
+        // opponent has to pass.
+        int[] principalVariation = bestReply == -1 ? new int[] {bestMove} : new int[] {bestMove, bestReply};
+        return new SearchResult(bestMove, alpha, empties, principalVariation, nodes);
+    }
+
+    /**
+     * This method returns the amount of positions visited by the last solve.
+     *
+     * @return the amount of nodes.
+     */
+    public long getNodes(){
+        return nodes;
+    }
+
+    /**
+     * This method returns the final disc difference of a position where the game is over.
+     *
+     * @param player the discs of the player to move.
+     * @param opponent the discs of the opponent.
+     * @return the disc difference for the player to move, empty positions count for the winner.
+     */
+    public static int getFinalScore(long player, long opponent){
+        int playerDiscs = ReversiBitboard.count(player);
+        int opponentDiscs = ReversiBitboard.count(opponent);
+        int empties = 64 - playerDiscs - opponentDiscs;
+        int score = playerDiscs - opponentDiscs;
+        if(score > 0){
+            score += empties;
+        } else if(score < 0){
+            score -= empties;
+        }
+        return score;
+    }
+
+    /**
+     * Recursive principal variation search for the exact score.
+     */
+    private int solve(long player, long opponent, int alpha, int beta, int ply, boolean passed){
+        nodes++;
+        if((nodes & (CHECK_INTERVAL - 1)) == 0 && limits.check(CHECK_INTERVAL)){
+            aborted = true;
+        }
+        if(aborted){
+            return 0;
+        }
+
+        // Nodes at ply 1 always generate their moves, so they find the reply to the move of the root.
+        int empties = 64 - ReversiBitboard.count(player | opponent);
+        if(empties <= SHALLOW_EMPTIES && ply != 1){
+            return solveShallow(player, opponent, alpha, beta, passed);
+        }
+
+        long valid = ReversiBitboard.getMoves(player, opponent);
+        if(valid == 0){
+            if(passed){
+                return getFinalScore(player, opponent);
+            }
+            return -solve(opponent, player, -beta, -alpha, ply + 1, true);
+        }
+
+        // Bounds from the hash table can end the search right away, or at least make the window smaller.
+        int index = -1;
+        int hashMove = -1;
+        if(empties >= HASH_EMPTIES){
+            index = hashIndex(player, opponent);
+            if(hashPlayer[index] == player && hashOpponent[index] == opponent){
+                int data = hashData[index];
+                int lower = (data & 0xFF) - 64;
+                int upper = (data >>> 8 & 0xFF) - 64;
+                hashMove = (data >>> 16 & 0xFF) - 1;
+                if(ply == 1){
+                    reply = hashMove;
+                }
+                if(lower >= beta) return lower;
+                if(upper <= alpha) return upper;
+                if(lower > alpha) alpha = lower;
+                if(upper < beta) beta = upper;
+            }
+        }
+        int alphaOrig = alpha;
+
+        int count = orderMoves(player, opponent, valid, empties, ply, hashMove);
+        int[] moves = orderMoves[ply];
+        int bestScore = -65;
+        int bestMove = -1;
+        for(int i = 0; i < count; i++){
+            int move = moves[i];
+            long flips = ReversiBitboard.getFlips(move, player, opponent);
+            long newPlayer = player | flips | 1L << move;
+            long newOpponent = opponent & ~flips;
+
+            int score;
+            if(i == 0){
+                score = -solve(newOpponent, newPlayer, -beta, -alpha, ply + 1, false);
+            } else {
+                score = -solve(newOpponent, newPlayer, -alpha - 1, -alpha, ply + 1, false);
+                if(score > alpha && score < beta){
+                    score = -solve(newOpponent, newPlayer, -beta, -alpha, ply + 1, false);
+                }
+            }
+            if(aborted){
+                return 0;
+            }
+
+            if(score > bestScore){
+                bestScore = score;
+                bestMove = move;
+                if(score > alpha){
+                    alpha = score;
+                    if(alpha >= beta){
+                        break;
+                    }
+                }
+            }
+        }
+
+        if(index != -1){
+            int lower = bestScore > alphaOrig ? bestScore : -64;
+            int upper = bestScore < beta ? bestScore : 64;
+            hashPlayer[index] = player;
+            hashOpponent[index] = opponent;
+            hashData[index] = (lower + 64) | (upper + 64) << 8 | (bestMove + 1) << 16;
+        }
+        if(ply == 1){
+            reply = bestMove;
+        }
+        return bestScore;
+    }
+
+    /**
+     * This method finds the index of a position in the hash table.
+     */
+    private static int hashIndex(long player, long opponent){
+        long hash = player * 0x9E3779B97F4A7C15L ^ opponent * 0xC2B2AE3D27D4EB4FL;
+        return (int) ((hash ^ hash >>> 29) >>> (64 - HASH_BITS));
+    }
+
+    /**
+     * Search for the last few empty positions. Every empty position is tried directly, a position where no discs
+     * are flipped isn't a valid move. With 1 empty position left the score is counted without making the move.
+     */
+    private int solveShallow(long player, long opponent, int alpha, int beta, boolean passed){
+        long empty = ~(player | opponent);
+        if(empty == 0){
+            return getFinalScore(player, opponent);
+        }
+        if((empty & empty - 1) == 0){
+            return solveLast(player, opponent, Long.numberOfTrailingZeros(empty));
+        }
+
+        // Empty positions in a quadrant with an odd amount of empty positions are tried first.
+        long odd = 0;
+        for(long quadrant : QUADRANTS){
+            if(Long.bitCount(empty & quadrant) % 2 == 1){
+                odd |= quadrant;
+            }
+        }
+
+        int bestScore = -65;
+        boolean moved = false;
+        for(int parity = 1; parity >= 0; parity--){
+            long group = empty & (parity == 1 ? odd : ~odd);
+            while(group != 0){
+                int move = Long.numberOfTrailingZeros(group);
+                group &= group - 1;
+                long flips = ReversiBitboard.getFlips(move, player, opponent);
+                if(flips == 0){
+                    continue;
+                }
+                moved = true;
+                nodes++;
+                int score = -solveShallow(opponent & ~flips, player | flips | 1L << move, -beta, -alpha, false);
+                if(score > bestScore){
+                    bestScore = score;
+                    if(score > alpha){
+                        alpha = score;
+                        if(alpha >= beta){
+                            return bestScore;
+                        }
+                    }
+                }
+            }
+        }
+
+        if(!moved){
+            if(passed){
+                return getFinalScore(player, opponent);
+            }
+            return -solveShallow(opponent, player, -beta, -alpha, true);
+        }
+        return bestScore;
+    }
+
+    /**
+     * This method returns the final score when there is only one empty position left. The player to move plays it
+     * if that flips something, if not the opponent tries, and if neither can the game ends with it empty.
+     */
+    private static int solveLast(long player, long opponent, int move){
+        int playerDiscs = ReversiBitboard.count(player);
+        long flips = ReversiBitboard.getFlips(move, player, opponent);
+        if(flips != 0){
+            return 2 * (playerDiscs + 1 + ReversiBitboard.count(flips)) - 64;
+        }
+        flips = ReversiBitboard.getFlips(move, opponent, player);
+        if(flips != 0){
+            return 2 * (playerDiscs - ReversiBitboard.count(flips)) - 64;
+        }
+        return getFinalScore(player, opponent);
+    }
+
+    /**
+     * This method orders the valid moves of a position and puts them in the move list of the ply. The best move
+     * from the hash table goes first. With enough empty positions left the moves that leave the opponent the
+     * fewest moves go next, after that moves in quadrants with an odd amount of empty positions.
+     *
+     * @return the amount of moves.
+     */
+    private int orderMoves(long player, long opponent, long valid, int empties, int ply, int hashMove){
+        int[] moves = orderMoves[ply];
+        int[] scores = orderScores[ply];
+        long empty = ~(player | opponent);
+
+        long odd = 0;
+        for(long quadrant : QUADRANTS){
+            if(Long.bitCount(empty & quadrant) % 2 == 1){
+                odd |= quadrant;
+            }
+        }
+
+        int count = 0;
+        while(valid != 0){
+            int move = Long.numberOfTrailingZeros(valid);
+            valid &= valid - 1;
+
+            // Lower scores are searched first.
+            int score = (odd >>> move & 1) == 0 ? 1 : 0;
+            if(move == hashMove){
+                score = -1;
+            } else if(empties > FASTEST_FIRST_EMPTIES){
+                long flips = ReversiBitboard.getFlips(move, player, opponent);
+                long opponentMoves = ReversiBitboard.getMoves(opponent & ~flips, player | flips | 1L << move);
+                score += 2 * ReversiBitboard.count(opponentMoves);
+            }
+
+            int i = count++;
+            while(i > 0 && scores[i - 1] > score){
+                moves[i] = moves[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            moves[i] = move;
+            scores[i] = score;
+        }
+        return count;
+    }
+}
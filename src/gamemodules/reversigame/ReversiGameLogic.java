@@ -1,9 +1,8 @@
 package src.gamemodules.reversigame;
 
-import java.util.ArrayList;
-
 import src.gameframework.GameBoardLogic;
 import src.gameframework.GameLogic;
+import src.gameframework.MoveList;
 
 /**
  * This class contains logic for the game Reversi.
@@ -18,26 +17,34 @@ public class ReversiGameLogic extends GameLogic {
     }
 
     /**
-     * Method that returns all available valid moves for a given player.
+     * Method that puts all available valid moves for a given player in a MoveList.
      *
      * @param player integer representing the player that should be checked for.
-     * @return ArrayList containing all valid moves.
+     * @param moves the list that will be filled with all valid moves.
      */
     @Override
-    public ArrayList<Integer> getMoves(int player){
-        ArrayList<Integer> result = new ArrayList<>();
+    public void generateMoves(int player, MoveList moves){
+        moves.clear();
+        for(int pos = 0; pos < 64; pos++){
+            if(isValid(pos, player)){
+                moves.add(pos);
+            }
+        }
+    }
 
-        for(int pos = 0; pos < getBoard().getBoard().length; pos++){
-            if(getBoard().getBoardPos(pos) == 0){
-                for(int dir = 0; dir < 8; dir++){
-                    if(checkDir(dir, pos, player)){
-                        result.add(pos);
-                        break;
-                    }
-                }
+    /**
+     * This method checks if a player has at least one valid move. This stops at the first valid move found.
+     *
+     * @param player the player that should be checked for.
+     * @return true if the player can make a move, false if not.
+     */
+    public boolean hasMoves(int player){
+        for(int pos = 0; pos < 64; pos++){
+            if(isValid(pos, player)){
+                return true;
             }
         }
-        return result;
+        return false;
     }
 
     /**
@@ -46,15 +53,34 @@ public class ReversiGameLogic extends GameLogic {
      *
      * @param pos position of the move.
      * @param player player that is making the move.
+     * @return a mask with a bit set for every disc that was flipped.
      */
     @Override
-    public void doMove(int pos, int player) {
-        getBoard().setBoardPos(pos, player);
+    public long doMove(int pos, int player) {
+        long flipped = 0;
         for(int dir=0; dir < 8; dir++){
             if(checkDir(dir, pos, player)){
-                flipDir(pos, dir, player);
+                flipped |= flipDir(pos, dir, player);
             }
         }
+        getBoard().setBoardPos(pos, player);
+        return flipped;
+    }
+
+    /**
+     * This method takes back a move by emptying the position and flipping all flipped discs back.
+     *
+     * @param pos position of the move.
+     * @param undo the mask of flipped discs returned by doMove.
+     */
+    @Override
+    public void undoMove(int pos, long undo) {
+        int opponent = 3 - getBoard().getBoardPos(pos);
+        getBoard().setBoardPos(pos, 0);
+        while(undo != 0){
+            getBoard().setBoardPos(Long.numberOfTrailingZeros(undo), opponent);
+            undo &= undo - 1;
+        }
     }
 
     /**
@@ -64,7 +90,7 @@ public class ReversiGameLogic extends GameLogic {
      */
     @Override
     public int gameOver(){
-        if(getMoves(1).size() == 0 && getMoves(2).size() == 0){
+        if(!hasMoves(1) && !hasMoves(2)){
             if(getDiscCount(1) > getDiscCount(2)){
                 return 1;
             } else if(getDiscCount(1) < getDiscCount(2)){
@@ -85,7 +111,15 @@ public class ReversiGameLogic extends GameLogic {
      */
     @Override
     public boolean isValid(int move, int player) {
-        return getMoves(player).contains(move);
+        if(move < 0 || move > 63 || getBoard().getBoardPos(move) != 0){
+            return false;
+        }
+        for(int dir = 0; dir < 8; dir++){
+            if(checkDir(dir, move, player)){
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -150,14 +184,16 @@ public class ReversiGameLogic extends GameLogic {
      * @param pos position to start at.
      * @param dir direction to check for.
      * @param player the player that should be checked for.
+     * @return a mask with a bit set for every disc that was turned.
      */
-    private void flipDir(int pos, int dir, int player){
+    private long flipDir(int pos, int dir, int player){
         int target = getTarget(dir, pos);
         int targetState = getBoard().getBoardPos(target);
         if(targetState == 3 - player){
             getBoard().setBoardPos(target, player);
-            flipDir(target, dir, player);
+            return (1L << target) | flipDir(target, dir, player);
         }
+        return 0;
     }
 
     /**
@@ -223,27 +259,23 @@ public class ReversiGameLogic extends GameLogic {
     }
 
     /**
-     * Method that calculates the total amount of opponent discs that can be flipped at this moment.
+     * Method that calculates the total amount of opponent discs that can be flipped at this moment. The flips
+     * are counted on bitboards, so no boards are created for the moves.
      *
      * @param board the board that should be checked for.
      * @param player the player that should be checked for.
      * @return the amount of opponent discs that can be flipped.
      */
     public int getPossibleFlips(GameBoardLogic board, int player){
-        ReversiGameLogic logic = new ReversiGameLogic();
-        logic.setBoard(board);
-        ArrayList<Integer> moves = logic.getMoves(player);
+        long own = ReversiBitboard.fromBoard(board, player);
+        long opponent = ReversiBitboard.fromBoard(board, 3 - player);
+        long moves = ReversiBitboard.getMoves(own, opponent);
 
         int result = 0;
-        for(int move : moves){
-            ReversiBoardLogic tempBoard = new ReversiBoardLogic();
-            tempBoard.setBoard(board.getBoard());
-            ReversiGameLogic tempLogic = new ReversiGameLogic();
-            tempLogic.setBoard(tempBoard);
-            int oldDiscs = tempLogic.getDiscCount(player);
-            tempLogic.doMove(move, player);
-            int newDiscs = tempLogic.getDiscCount(player) - 1;
-            result += newDiscs - oldDiscs;
+        while(moves != 0){
+            long flips = ReversiBitboard.getFlips(Long.numberOfTrailingZeros(moves), own, opponent);
+            result += ReversiBitboard.count(flips);
+            moves &= moves - 1;
         }
 
         return result;
@@ -252,93 +284,15 @@ public class ReversiGameLogic extends GameLogic {
     /**
      * This method returns the amount of stable discs for a given player.
      * Stable discs are discs that are stuck in position and cannot be changed for the entirety of
-     * the game.
+     * the game. See ReversiStability for how they are found.
      *
      * @param board the board that should be checked for.
      * @param player the player that should be checked for.
      * @return the amount of stable discs.
      */
     public int getStableDiscs(GameBoardLogic board, int player){
-        ArrayList<Integer> positions = new ArrayList<>();
-
-        for(int i=0; i<4; i++){
-            for(int pos : getStablePositionsFromCorner(i, board, player)){
-                if(!positions.contains(pos)){
-                    positions.add(pos);
-                }
-            }
-        }
-        return positions.size();
-    }
-
-    /**
-     * Method used by getStableDiscs to find all stable positions for a specific corner.
-     *
-     * @param corner the corner that should be checked for.
-     * @param board the board that should be checked for.
-     * @param player the player that should be checked for.
-     * @return ArrayList containing stable positions.
-     */
-    private ArrayList<Integer> getStablePositionsFromCorner(int corner, GameBoardLogic board, int player){
-        ArrayList<Integer> positions = new ArrayList<>();
-
-        int xMod = 0;
-        int yMod = 0;
-        int startPos = 0;
-        switch(corner){
-            case 0: // top left
-                startPos = 0;
-                xMod = 1;
-                yMod = 1;
-                break;
-            case 1: // top right
-                startPos = 7;
-                xMod = -1;
-                yMod = 1;
-                break;
-            case 2: // bottom left
-                startPos = 56;
-                xMod = 1;
-                yMod = -1;
-                break;
-            case 3: // bottom right
-                startPos = 63;
-                xMod = -1;
-                yMod = -1;
-                break;
-        }
-
-        int pos = startPos;
-        if(board.getBoardPos(0) == player){
-            boolean reachedEndX = false;
-            boolean reachedEndY = false;
-            int row = 0;
-            int maxCol = 7;
-            while(!reachedEndY){
-                int col = 0;
-                while(!reachedEndX){
-                    if(board.getBoardPos(pos) == player && col < maxCol){
-                        if(!positions.contains(pos)){
-                            positions.add(pos);
-                        }
-                        pos += xMod;
-                        col++;
-                    } else {
-                        maxCol = col - 1;
-                        if(maxCol == 0) maxCol = 1;
-                        reachedEndX = true;
-                    }
-                }
-
-                row++;
-                pos = startPos + (8 * yMod) * row;
-                if(row == 8 || board.getBoardPos(pos) != player ){
-                    reachedEndY = true;
-                }
-                reachedEndX = false;
-            }
-        }
-
-        return positions;
+        long own = ReversiBitboard.fromBoard(board, player);
+        long opponent = ReversiBitboard.fromBoard(board, 3 - player);
+        return ReversiBitboard.count(ReversiStability.getStableDiscs(own, opponent));
     }
 }
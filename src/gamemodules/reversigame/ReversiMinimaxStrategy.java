@@ -1,12 +1,14 @@
 package src.gamemodules.reversigame;
 
 import java.util.ArrayList;
-import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
 
 import src.gameframework.GameBoardLogic;
+import src.gameframework.GameLogic;
+import src.gameframework.SearchLimits;
 import src.gameframework.aistrategies.MinimaxStrategy;
+import src.gameframework.aistrategies.SearchPosition;
+import src.gameframework.aistrategies.SearchResult;
 
 /**
  * Minimax AI for reversi.
@@ -16,25 +18,42 @@ public class ReversiMinimaxStrategy extends MinimaxStrategy {
     // Used for generating random moves.
     private static final Random random = new Random();
 
+    // Extra depth on hard when Multi-ProbCut is used, the pruning saves more than this in the same time.
+    private static final int PROBCUT_EXTRA_DEPTH = 2;
+
+    // With this many empty positions or less the game is solved exactly, 0 turns the endgame solver off. The
+    // solver is created the first time it's used, and keeps its hash table during the game.
+    private int endgameEmpties = 18;
+    private volatile ReversiEndgameSolver endgameSolver;
+
+    // Book with moves for the start of the game, or null to always search.
+    private ReversiOpeningBook openingBook;
+
+    // Pattern evaluation, or null to evaluate with stability, mobility and corners.
+    private ReversiPatternEvaluator patternEvaluator;
+
+    // Neural network evaluation, used instead of the other evaluations when it's set.
+    private ReversiNeuralEvaluator neuralEvaluator;
+
+    /**
+     * Constructor for ReversiMinimaxStrategy. Scores of the reversi evaluation seldom change more than a few
+     * mobility points between iterations, so the search starts with a small aspiration window.
+     */
+    public ReversiMinimaxStrategy() {
+        setAspirationWindow(10);
+    }
+
     /**
      * This method iterates the valid moves and it it determines which move currently is the best move
-     * to make. This method uses our own version of a minimax algorithm with alpha-beta pruning and
-     * quiescence search. It also uses multithreading for even better performance.
+     * to make. This method uses our negamax search with alpha-beta pruning and quiescence search.
+     * It also uses multithreading for even better performance.
      *
      * @return the best move.
      */
     @Override
-    public synchronized int getBestMove(GameBoardLogic board, int player) {
-        // Start the timeout timer.
-        long startTime = System.currentTimeMillis();
-
-        // Map that stores the calculated scores for valid moves.
-        Map<Integer, Integer> results = new ConcurrentHashMap<>();
-
-        // Board and logic to use later.
-        ReversiBoardLogic reversiBoard = (ReversiBoardLogic) board;
+    protected int findBestMove(GameBoardLogic board, int player) {
         ReversiGameLogic logic = new ReversiGameLogic();
-        logic.setBoard(reversiBoard);
+        logic.setBoard(board);
         ArrayList<Integer> moves = logic.getMoves(player);
 
         // Change AI behaviour according to difficulty
@@ -72,74 +91,149 @@ public class ReversiMinimaxStrategy extends MinimaxStrategy {
                         depth = 4;
                     }
                 }
+                if(getMultiProbCut() != null){
+                    depth += PROBCUT_EXTRA_DEPTH;
+                }
                 break;
             // TESTING
             case 3:
                 depth = 5;
         }
 
-        // Choose if player should be maximizing our minimizing.
-        int bestEval;
-        boolean isMax;
-        if(player == 1){
-            bestEval = -10000;
-            isMax = true;
-        } else {
-            isMax = false;
-            bestEval = 10000;
+        // Positions in the opening book have already been searched deeper than we can during a game.
+        if(openingBook != null){
+            int bookMove = openingBook.getMove(board.hash(player));
+            if(moves.contains(bookMove)){
+                return bookMove;
+            }
         }
 
-        int resultCount = 0;
-        for(int move : moves){
-            // Generate a temp board and do the move.
-            ReversiBoardLogic newBoard = new ReversiBoardLogic();
-            newBoard.setBoard(reversiBoard.getBoard());
-            ReversiGameLogic newLogic = new ReversiGameLogic();
-            newLogic.setBoard(newBoard);
-            newLogic.doMove(move, player);
-
-            // Give the new board to a minimax worker.
-            ReversiMinimaxWorker worker = new ReversiMinimaxWorker(newBoard, depth, !isMax, move, results);
-            Thread thread = new Thread(worker);
-            thread.start();
-
-            resultCount++;
+        // The depth is the depth below the moves of the root, so the move of the root is added to it.
+        ReversiSearchPosition position = neuralEvaluator != null
+                ? new ReversiSearchPosition(board, player, neuralEvaluator)
+                : new ReversiSearchPosition(board, player, patternEvaluator);
+        return search(position, depth + 1).getMove();
+    }
+
+    /**
+     * Method to get the amount of empty positions from which the endgame is solved exactly.
+     *
+     * @return the amount of empty positions.
+     */
+    public int getEndgameEmpties() {
+        return endgameEmpties;
+    }
+
+    /**
+     * Method to change the amount of empty positions from which the endgame is solved exactly. 0 turns the
+     * endgame solver off.
+     *
+     * @param endgameEmpties the amount of empty positions.
+     */
+    public void setEndgameEmpties(int endgameEmpties) {
+        if(endgameEmpties < 0 || endgameEmpties > 60){
+            System.err.println("Not a valid amount of empty positions : " + endgameEmpties);
+        } else {
+            this.endgameEmpties = endgameEmpties;
         }
+    }
 
-        // Wait until all results are back.
-        boolean timeout = false;
-        while(results.size() != resultCount && !timeout){
-            try {
-                Thread.sleep(10);
-                // If it's taking to long we want to stop calculating moves and just work with
-                // the results we have gotten so far. This is not the best way of implementing time
-                // constraints, but it just acts as a fail-safe. Ideally we want this to never occur.
-                if((System.currentTimeMillis() - startTime) / 1000.0 > (super.getMaxTime() - 0.2)){
-                    System.err.println("A timeout occurred!");
-                    timeout = true;
-                }
-            } catch (InterruptedException ignored) {}
+    /**
+     * Method to get the opening book.
+     *
+     * @return the opening book, or null if there is none.
+     */
+    public ReversiOpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    /**
+     * Method to change the opening book. The book is used on every difficulty except easy.
+     *
+     * @param openingBook the opening book, or null to always search.
+     */
+    public void setOpeningBook(ReversiOpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Method to get the pattern evaluation.
+     *
+     * @return the pattern evaluation, or null if positions are evaluated with stability, mobility and corners.
+     */
+    public ReversiPatternEvaluator getPatternEvaluator() {
+        return patternEvaluator;
+    }
+
+    /**
+     * Method to change the evaluation of positions. The transposition table is cleared, because its scores come
+     * from the old evaluation.
+     *
+     * @param patternEvaluator the pattern evaluation, or null to evaluate with stability, mobility and corners.
+     */
+    public void setPatternEvaluator(ReversiPatternEvaluator patternEvaluator) {
+        ponderMiss();
+        this.patternEvaluator = patternEvaluator;
+        newGame();
+    }
+
+    /**
+     * Method to get the neural network evaluation.
+     *
+     * @return the neural network evaluation, or null if it isn't used.
+     */
+    public ReversiNeuralEvaluator getNeuralEvaluator() {
+        return neuralEvaluator;
+    }
+
+    /**
+     * Method to change the neural network evaluation, it's used instead of the pattern evaluation when it's set.
+     * The transposition table is cleared, because its scores come from the old evaluation.
+     *
+     * @param neuralEvaluator the neural network evaluation, or null to not use it.
+     */
+    public void setNeuralEvaluator(ReversiNeuralEvaluator neuralEvaluator) {
+        ponderMiss();
+        this.neuralEvaluator = neuralEvaluator;
+        newGame();
+    }
+
+    /**
+     * This method solves the end of the game exactly with ReversiEndgameSolver, on the hard difficulty. The
+     * solver may use half of the time for a move, when it isn't done by then the normal search is used.
+     *
+     * @param root the position to solve.
+     * @param limits the limits of the search.
+     * @return the best move with the final disc difference as score, or null if the position isn't solved.
+     */
+    @Override
+    protected SearchResult solve(SearchPosition root, SearchLimits limits) {
+        ReversiSearchPosition position = (ReversiSearchPosition) root;
+        long player = position.getDiscs(position.getPlayer());
+        long opponent = position.getDiscs(3 - position.getPlayer());
+        if(getDifficulty() < 2 || 64 - ReversiBitboard.count(player | opponent) > endgameEmpties){
+            return null;
         }
 
-        // Choose the best result
-        int bestMove = -1;
-        if(!results.isEmpty()){
-            for(Map.Entry<Integer, Integer> result : results.entrySet()){
-                int eval = result.getValue();
-                int move = result.getKey();
-                if(isMax && eval > bestEval || !isMax && eval < bestEval){
-                    bestEval = eval;
-                    bestMove = move;
-                }
-            }
-        } else {
-            if(moves.size() > 0){
-                bestMove = moves.get(0);
-            }
+        SearchLimits solverLimits = new SearchLimits(limits);
+        solverLimits.setMaxTime(getMaxTime() / 2);
+        if(endgameSolver == null){
+            endgameSolver = new ReversiEndgameSolver();
         }
-        results.clear();
+        return endgameSolver.solve(player, opponent, solverLimits);
+    }
 
-        return bestMove;
+    /**
+     * Method to forget everything learned in the current game, this also clears the hash table of the endgame
+     * solver.
+     */
+    @Override
+    public void newGame() {
+        super.newGame();
+        ReversiEndgameSolver solver = endgameSolver;
+        if(solver != null){
+            solver.clear();
+        }
     }
 
     /**
@@ -161,4 +255,16 @@ public class ReversiMinimaxStrategy extends MinimaxStrategy {
             return -1;
         }
     }
+
+    /**
+     * This method creates reversi logic with a new board.
+     *
+     * @return the game logic.
+     */
+    @Override
+    protected GameLogic createGameLogic() {
+        ReversiGameLogic logic = new ReversiGameLogic();
+        logic.setBoard(new ReversiBoardLogic());
+        return logic;
+    }
 }
@@ -0,0 +1,327 @@
+package src.gamemodules.reversigame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Evaluation of a reversi position with a small quantized neural network, updated incrementally like NNUE.
+ *
+ * The inputs are the discs on the board: for every position one input for a disc of the own player and one for a
+ * disc of the opponent. The first layer sums the weights of the inputs that are set into an accumulator of 16 bit
+ * values, once from the view of player 1 and once from the view of player 2. Only a few inputs change with a move,
+ * the disc that is placed and the discs that are flipped, so the accumulators are updated with the weights of those
+ * positions instead of being computed again. Positions keep the accumulators of every move on a stack, so taking
+ * back a move costs nothing.
+ *
+ * To evaluate, both accumulators are clipped to 0..127 so they fit in 8 bits, the accumulator of the player to move
+ * first. They are multiplied with the 8 bit weights of the output layer of the phase of the game, and the sum is
+ * shifted down to the scale of the other evaluations. Everything is integer arithmetic on the CPU.
+ *
+ * The weights are trained offline and loaded from a file. Without a file the network computes the same table with
+ * a value for every position as the default pattern evaluation.
+ */
+public final class ReversiNeuralEvaluator {
+
+    // "RVNN", the first bytes of every network file.
+    private static final int MAGIC = 0x52564E4E;
+    private static final int VERSION = 1;
+
+    // Amount of output layers, one for every phase of the game, see ReversiPatternEvaluator.getPhase.
+    public static final int PHASES = ReversiPatternEvaluator.PHASES;
+
+    // Highest value of an accumulator after it's clipped, this stands for 1.
+    public static final int ACTIVATION_MAX = 127;
+
+    private final int hiddenSize;
+
+    // Weights of the first layer: for every position the weights of a disc of the own player, followed by the
+    // weights of a disc of the opponent. The change when a disc of the opponent is flipped is kept separately.
+    private final short[] inputWeights;
+    private final short[] flipWeights;
+    private final short[] hiddenBiases;
+
+    // Weights of the output layers: for every phase, the weights of the player to move followed by those of the
+    // opponent.
+    private final byte[] outputWeights;
+    private final int[] outputBiases;
+    private final int outputShift;
+
+    /**
+     * Constructor for ReversiNeuralEvaluator.
+     *
+     * @param hiddenSize the size of an accumulator.
+     * @param inputWeights the weights of the first layer, 128 * hiddenSize values.
+     * @param hiddenBiases the biases of the first layer, hiddenSize values.
+     * @param outputWeights the weights of the output layers, PHASES * 2 * hiddenSize values.
+     * @param outputBiases the biases of the output layers, PHASES values.
+     * @param outputShift the amount of bits the output is shifted down.
+     */
+    public ReversiNeuralEvaluator(int hiddenSize, short[] inputWeights, short[] hiddenBiases, byte[] outputWeights,
+                                  int[] outputBiases, int outputShift) {
+        this.hiddenSize = hiddenSize;
+        this.inputWeights = inputWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBiases = outputBiases;
+        this.outputShift = outputShift;
+        this.flipWeights = new short[64 * hiddenSize];
+        updateFlipWeights();
+    }
+
+    /**
+     * This method creates a network that computes a table with a value for every position, the same table as the
+     * default pattern evaluation. The first neuron is the sum of the values of the own discs minus those of the
+     * opponent, the second neuron is minus that sum, so the clipping only cuts off very big differences. This is a
+     * starting point for training, the other neurons are 0.
+     *
+     * @param hiddenSize the size of an accumulator, at least 2.
+     * @return the evaluator.
+     */
+    public static ReversiNeuralEvaluator createDefault(int hiddenSize){
+        short[] inputWeights = new short[128 * hiddenSize];
+        for(int square = 0; square < 64; square++){
+            int value = Math.round(ReversiPatternEvaluator.SQUARE_VALUES[square] / 2.0f);
+            int own = square * 2 * hiddenSize;
+            int opponent = own + hiddenSize;
+            inputWeights[own] = (short) value;
+            inputWeights[own + 1] = (short) -value;
+            inputWeights[opponent] = (short) -value;
+            inputWeights[opponent + 1] = (short) value;
+        }
+
+        // Score = 4 * value = 8 * (first neuron - second neuron), with weights of 64 and a shift of 3.
+        byte[] outputWeights = new byte[PHASES * 2 * hiddenSize];
+        for(int phase = 0; phase < PHASES; phase++){
+            outputWeights[phase * 2 * hiddenSize] = 64;
+            outputWeights[phase * 2 * hiddenSize + 1] = -64;
+        }
+        return new ReversiNeuralEvaluator(hiddenSize, inputWeights, new short[hiddenSize], outputWeights,
+                new int[PHASES], 3);
+    }
+
+    /**
+     * This method loads a network from a file.
+     *
+     * @param file the network file.
+     * @return the evaluator.
+     * @throws IOException when the file can't be read or isn't a network.
+     */
+    public static ReversiNeuralEvaluator load(Path file) throws IOException {
+        try(InputStream stream = Files.newInputStream(file);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream))){
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                throw new IOException("Not a reversi network file : " + file);
+            }
+            int hiddenSize = in.readInt();
+            if(hiddenSize < 1 || hiddenSize > 1024 || in.readInt() != PHASES){
+                throw new IOException("Reversi network file has another size : " + file);
+            }
+            int outputShift = in.readInt();
+            short[] inputWeights = new short[128 * hiddenSize];
+            for(int i = 0; i < inputWeights.length; i++){
+                inputWeights[i] = in.readShort();
+            }
+            short[] hiddenBiases = new short[hiddenSize];
+            for(int i = 0; i < hiddenSize; i++){
+                hiddenBiases[i] = in.readShort();
+            }
+            byte[] outputWeights = new byte[PHASES * 2 * hiddenSize];
+            in.readFully(outputWeights);
+            int[] outputBiases = new int[PHASES];
+            for(int i = 0; i < PHASES; i++){
+                outputBiases[i] = in.readInt();
+            }
+            return new ReversiNeuralEvaluator(hiddenSize, inputWeights, hiddenBiases, outputWeights, outputBiases,
+                    outputShift);
+        }
+    }
+
+    /**
+     * This method saves the network to a file: the magic number, the version, the size of an accumulator, the
+     * amount of phases and the output shift, followed by the weights and biases of the first layer and the output
+     * layers.
+     *
+     * @param file the file to write, an existing file is replaced.
+     * @throws IOException when the file can't be written.
+     */
+    public void save(Path file) throws IOException {
+        try(OutputStream stream = Files.newOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hiddenSize);
+            out.writeInt(PHASES);
+            out.writeInt(outputShift);
+            for(short weight : inputWeights){
+                out.writeShort(weight);
+            }
+            for(short bias : hiddenBiases){
+                out.writeShort(bias);
+            }
+            out.write(outputWeights);
+            for(int bias : outputBiases){
+                out.writeInt(bias);
+            }
+        }
+    }
+
+    /**
+     * This method computes the accumulators of a position from scratch. The first half is the accumulator from the
+     * view of player 1, the second half from the view of player 2.
+     *
+     * @param discs1 the discs of player 1.
+     * @param discs2 the discs of player 2.
+     * @return the accumulators.
+     */
+    public short[] createAccumulator(long discs1, long discs2){
+        short[] accumulator = new short[2 * hiddenSize];
+        System.arraycopy(hiddenBiases, 0, accumulator, 0, hiddenSize);
+        System.arraycopy(hiddenBiases, 0, accumulator, hiddenSize, hiddenSize);
+        for(long discs = discs1; discs != 0; discs &= discs - 1){
+            addDisc(accumulator, Long.numberOfTrailingZeros(discs), 0, hiddenSize);
+        }
+        for(long discs = discs2; discs != 0; discs &= discs - 1){
+            addDisc(accumulator, Long.numberOfTrailingZeros(discs), hiddenSize, 0);
+        }
+        return accumulator;
+    }
+
+    /**
+     * This method updates the accumulators for a move.
+     *
+     * @param accumulator the accumulators, see createAccumulator.
+     * @param player the player that made the move.
+     * @param move the position of the new disc.
+     * @param flips the discs that were flipped.
+     */
+    public void doMove(short[] accumulator, int player, int move, long flips){
+        int own = player == 1 ? 0 : hiddenSize;
+        int opponent = hiddenSize - own;
+        addDisc(accumulator, move, own, opponent);
+        for(; flips != 0; flips &= flips - 1){
+            int flip = Long.numberOfTrailingZeros(flips) * hiddenSize;
+            for(int i = 0; i < hiddenSize; i++){
+                short weight = flipWeights[flip + i];
+                accumulator[own + i] += weight;
+                accumulator[opponent + i] -= weight;
+            }
+        }
+    }
+
+    /**
+     * This method evaluates a position with its accumulators.
+     *
+     * @param accumulator the accumulators of the position.
+     * @param player the player to move.
+     * @param phase the phase of the game, see ReversiPatternEvaluator.getPhase.
+     * @return the score, positive is good for the player to move.
+     */
+    public int evaluate(short[] accumulator, int player, int phase){
+        int own = player == 1 ? 0 : hiddenSize;
+        int opponent = hiddenSize - own;
+        int weights = phase * 2 * hiddenSize;
+        int sum = outputBiases[phase];
+        for(int i = 0; i < hiddenSize; i++){
+            sum += clip(accumulator[own + i]) * outputWeights[weights + i];
+        }
+        weights += hiddenSize;
+        for(int i = 0; i < hiddenSize; i++){
+            sum += clip(accumulator[opponent + i]) * outputWeights[weights + i];
+        }
+        return sum >> outputShift;
+    }
+
+    /**
+     * Method to get the size of an accumulator.
+     *
+     * @return the amount of neurons in the first layer.
+     */
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    /**
+     * Method to get the weights of the first layer, see the constructor. Changes to the array change the network
+     * after updateFlipWeights is called.
+     *
+     * @return the weights.
+     */
+    public short[] getInputWeights() {
+        return inputWeights;
+    }
+
+    /**
+     * Method to get the biases of the first layer. Changes to the array change the network.
+     *
+     * @return the biases.
+     */
+    public short[] getHiddenBiases() {
+        return hiddenBiases;
+    }
+
+    /**
+     * Method to get the weights of the output layers, see the constructor. Changes to the array change the network.
+     *
+     * @return the weights.
+     */
+    public byte[] getOutputWeights() {
+        return outputWeights;
+    }
+
+    /**
+     * Method to get the biases of the output layers. Changes to the array change the network.
+     *
+     * @return the biases.
+     */
+    public int[] getOutputBiases() {
+        return outputBiases;
+    }
+
+    /**
+     * Method to get the amount of bits the output is shifted down.
+     *
+     * @return the shift.
+     */
+    public int getOutputShift() {
+        return outputShift;
+    }
+
+    /**
+     * This method computes the change of the accumulators when a disc is flipped again, this has to be called after
+     * the weights of the first layer are changed.
+     */
+    public void updateFlipWeights(){
+        for(int square = 0; square < 64; square++){
+            int input = square * 2 * hiddenSize;
+            for(int i = 0; i < hiddenSize; i++){
+                flipWeights[square * hiddenSize + i] =
+                        (short) (inputWeights[input + i] - inputWeights[input + hiddenSize + i]);
+            }
+        }
+    }
+
+    /**
+     * This method adds the weights of a new disc to the accumulators.
+     */
+    private void addDisc(short[] accumulator, int square, int own, int opponent){
+        int input = square * 2 * hiddenSize;
+        for(int i = 0; i < hiddenSize; i++){
+            accumulator[own + i] += inputWeights[input + i];
+            accumulator[opponent + i] += inputWeights[input + hiddenSize + i];
+        }
+    }
+
+    /**
+     * This method clips the value of an accumulator to 0..ACTIVATION_MAX.
+     */
+    private static int clip(int value){
+        return value < 0 ? 0 : Math.min(value, ACTIVATION_MAX);
+    }
+}
@@ -0,0 +1,152 @@
+package src.gamemodules.reversigame;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Opening book for reversi, a file with the best move for positions at the start of the game. The moves are found
+ * offline by deep searches, see ReversiBookBuilder, so the AI doesn't have to search these positions during a game.
+ *
+ * The file starts with a header: the magic number, the version and the amount of entries. After that come the
+ * entries sorted by the hash of the position, including the player to move. Every entry is the hash, the move, the
+ * depth it was searched to and its score. The file is memory mapped and searched with a binary search, so a lookup
+ * doesn't allocate anything and all programs that use the same file share one copy of it in memory.
+ */
+public class ReversiOpeningBook {
+
+    // "RVBK", the first bytes of every book file.
+    private static final int MAGIC = 0x5256424B;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    /**
+     * A move in the book, with the depth it was searched to and its score.
+     */
+    public static class Entry {
+
+        private final int move;
+        private final int depth;
+        private final int score;
+
+        public Entry(int move, int depth, int score) {
+            this.move = move;
+            this.depth = depth;
+            this.score = score;
+        }
+
+        public int getMove() {
+            return move;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    private ReversiOpeningBook(MappedByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * This method opens a book file. The file stays mapped until the book is garbage collected.
+     *
+     * @param file the book file.
+     * @return the book.
+     * @throws IOException when the file can't be read or isn't a book.
+     */
+    public static ReversiOpeningBook open(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION){
+                throw new IOException("Not a reversi opening book : " + file);
+            }
+            int size = buffer.getInt(8);
+            if(buffer.capacity() < HEADER_SIZE + (long) size * ENTRY_SIZE){
+                throw new IOException("Reversi opening book is too short : " + file);
+            }
+            return new ReversiOpeningBook(buffer, size);
+        }
+    }
+
+    /**
+     * This method writes a book file.
+     *
+     * @param file the file to write, an existing file is replaced.
+     * @param entries the moves in the book by the hash of their position.
+     * @throws IOException when the file can't be written.
+     */
+    public static void write(Path file, SortedMap<Long, Entry> entries) throws IOException {
+        try(OutputStream stream = Files.newOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            out.writeInt(0);
+            for(Map.Entry<Long, Entry> entry : entries.entrySet()){
+                out.writeLong(entry.getKey());
+                out.writeByte(entry.getValue().getMove());
+                out.writeByte(entry.getValue().getDepth());
+                out.writeShort(entry.getValue().getScore());
+            }
+        }
+    }
+
+    /**
+     * This method looks up the move for a position.
+     *
+     * @param key the hash of the position including the player to move, see GameBoardLogic.hash(int).
+     * @return the move, or -1 if the position isn't in the book.
+     */
+    public int getMove(long key){
+        int index = find(key);
+        return index == -1 ? -1 : buffer.get(HEADER_SIZE + index * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * This method returns the amount of positions in the book.
+     *
+     * @return the amount of positions.
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * This method finds the index of the entry of a position with a binary search.
+     */
+    private int find(long key){
+        int low = 0;
+        int high = size - 1;
+        while(low <= high){
+            int middle = (low + high) >>> 1;
+            long middleKey = buffer.getLong(HEADER_SIZE + middle * ENTRY_SIZE);
+            if(middleKey < key){
+                low = middle + 1;
+            } else if(middleKey > key){
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
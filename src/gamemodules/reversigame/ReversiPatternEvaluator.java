@@ -0,0 +1,582 @@
+package src.gamemodules.reversigame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Evaluation of a reversi position with pattern tables. A pattern is a group of positions, like an edge or the 3x3
+ * square in a corner. Every way the positions of a pattern can be filled has its own weight, and the score of a
+ * position is the sum of the weights of all patterns on the board. Patterns are used in every orientation of the
+ * board with the same weights, so the 10 patterns give 38 weights per position.
+ *
+ * The weights are for the player to move, and every phase of the game has its own weights because what's good
+ * changes during a game. The index of a pattern is its positions as a number in base 3: 0 for empty, 1 for the
+ * player to move and 2 for the opponent. It's found with a table that turns the discs of a player into base 3.
+ * To find the discs of a pattern in every orientation with the same shifts, the board itself is mirrored.
+ *
+ * The weights are trained offline and loaded from a file. Without a file the weights are made from a table with
+ * a value for every position on the board.
+ */
+public final class ReversiPatternEvaluator {
+
+    // "RVPW", the first bytes of every weights file.
+    private static final int MAGIC = 0x52565057;
+    private static final int VERSION = 1;
+
+    // Amount of phases, every 6 moves are a phase.
+    public static final int PHASES = 10;
+
+    // Amount of patterns on the board in every orientation, see getFeatures.
+    public static final int FEATURES = 38;
+
+    // Amount of orientations of the board besides the board itself, see getOrientations.
+    static final int ORIENTATIONS = 5;
+
+    // The patterns in one orientation: the edge with both X positions, the corner, the rows and columns that are
+    // not on an edge, and the diagonals of 8 to 4 positions.
+    private static final int[][] PATTERNS = {
+            {0, 1, 2, 3, 4, 5, 6, 7, 9, 14},
+            {0, 1, 2, 8, 9, 10, 16, 17, 18},
+            {8, 9, 10, 11, 12, 13, 14, 15},
+            {16, 17, 18, 19, 20, 21, 22, 23},
+            {24, 25, 26, 27, 28, 29, 30, 31},
+            {0, 9, 18, 27, 36, 45, 54, 63},
+            {1, 10, 19, 28, 37, 46, 55},
+            {2, 11, 20, 29, 38, 47},
+            {3, 12, 21, 30, 39},
+            {4, 13, 22, 31}
+    };
+
+    // Value of every position, used for the weights when there is no weights file.
+    static final int[] SQUARE_VALUES = {
+            100, -20, 10,  5,  5, 10, -20, 100,
+            -20, -50, -2, -2, -2, -2, -50, -20,
+             10,  -2,  1,  1,  1,  1,  -2,  10,
+              5,  -2,  1,  0,  0,  1,  -2,   5,
+              5,  -2,  1,  0,  0,  1,  -2,   5,
+             10,  -2,  1,  1,  1,  1,  -2,  10,
+            -20, -50, -2, -2, -2, -2, -50, -20,
+            100, -20, 10,  5,  5, 10, -20, 100
+    };
+
+    // Start of the weights of every pattern, and the total amount of weights of one phase.
+    private static final int[] OFFSETS = new int[PATTERNS.length];
+    private static final int SIZE;
+
+    private static final int EDGE = 0;
+    private static final int CORNER = 1;
+    private static final int ROW_2 = 2;
+    private static final int ROW_3 = 3;
+    private static final int ROW_4 = 4;
+    private static final int DIAGONAL_8 = 5;
+    private static final int DIAGONAL_7 = 6;
+    private static final int DIAGONAL_6 = 7;
+    private static final int DIAGONAL_5 = 8;
+    private static final int DIAGONAL_4 = 9;
+
+    // The diagonals of 8 to 4 positions, and the column on the left.
+    private static final long DIAGONAL_8_MASK = 0x8040201008040201L;
+    private static final long DIAGONAL_7_MASK = 0x0080402010080402L;
+    private static final long DIAGONAL_6_MASK = 0x0000804020100804L;
+    private static final long DIAGONAL_5_MASK = 0x0000008040201008L;
+    private static final long DIAGONAL_4_MASK = 0x0000000080402010L;
+    private static final long LEFT_COLUMN = 0x0101010101010101L;
+
+    // The diagonals of 7 to 4 positions, in the order of their patterns.
+    private static final long[] SHORT_DIAGONAL_MASKS = {
+            DIAGONAL_7_MASK, DIAGONAL_6_MASK, DIAGONAL_5_MASK, DIAGONAL_4_MASK
+    };
+
+    // The base 3 value of up to 10 bits, every bit is a 1.
+    private static final int[] BASE3 = new int[1 << 10];
+
+    static {
+        int size = 0;
+        for(int pattern = 0; pattern < PATTERNS.length; pattern++){
+            OFFSETS[pattern] = size;
+            size += pow3(PATTERNS[pattern].length);
+        }
+        SIZE = size;
+
+        for(int bits = 0; bits < BASE3.length; bits++){
+            int value = 0;
+            for(int k = 9; k >= 0; k--){
+                value = value * 3 + (bits >>> k & 1);
+            }
+            BASE3[bits] = value;
+        }
+    }
+
+    // The weights of every phase.
+    private final short[][] weights;
+
+    private ReversiPatternEvaluator(short[][] weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * This method creates an evaluator with weights made from the value of every position. Every pattern gets the
+     * part of the value of its positions, so the sum of all patterns is the sum of the values of the discs.
+     *
+     * @return the evaluator.
+     */
+    public static ReversiPatternEvaluator createDefault(){
+        // The amount of patterns every position is in, counting every orientation of a pattern once.
+        int[] coverage = new int[64];
+        for(int[] pattern : PATTERNS){
+            Set<Long> seen = new HashSet<>();
+            for(int symmetry = 0; symmetry < 8; symmetry++){
+                long mask = 0;
+                for(int square : pattern){
+                    mask |= 1L << transform(square, symmetry);
+                }
+                if(seen.add(mask)){
+                    for(int square : pattern){
+                        coverage[transform(square, symmetry)]++;
+                    }
+                }
+            }
+        }
+
+        short[] phaseWeights = new short[SIZE];
+        for(int pattern = 0; pattern < PATTERNS.length; pattern++){
+            int[] squares = PATTERNS[pattern];
+            for(int index = 0; index < pow3(squares.length); index++){
+                int value = 0;
+                int rest = index;
+                for(int square : squares){
+                    int state = rest % 3;
+                    rest /= 3;
+                    if(state != 0){
+                        value += (state == 1 ? 4 : -4) * SQUARE_VALUES[square] / coverage[square];
+                    }
+                }
+                phaseWeights[OFFSETS[pattern] + index] = (short) value;
+            }
+        }
+
+        short[][] weights = new short[PHASES][];
+        for(int phase = 0; phase < PHASES; phase++){
+            weights[phase] = phaseWeights.clone();
+        }
+        return new ReversiPatternEvaluator(weights);
+    }
+
+    /**
+     * This method loads the weights from a file.
+     *
+     * @param file the weights file.
+     * @return the evaluator.
+     * @throws IOException when the file can't be read or doesn't have the weights of these patterns.
+     */
+    public static ReversiPatternEvaluator load(Path file) throws IOException {
+        try(InputStream stream = Files.newInputStream(file);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream))){
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                throw new IOException("Not a reversi weights file : " + file);
+            }
+            if(in.readInt() != PHASES || in.readInt() != SIZE){
+                throw new IOException("Reversi weights file has other patterns : " + file);
+            }
+            short[][] weights = new short[PHASES][SIZE];
+            for(short[] phaseWeights : weights){
+                for(int i = 0; i < SIZE; i++){
+                    phaseWeights[i] = in.readShort();
+                }
+            }
+            return new ReversiPatternEvaluator(weights);
+        }
+    }
+
+    /**
+     * This method saves the weights to a file.
+     *
+     * @param file the file to write, an existing file is replaced.
+     * @throws IOException when the file can't be written.
+     */
+    public void save(Path file) throws IOException {
+        try(OutputStream stream = Files.newOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(PHASES);
+            out.writeInt(SIZE);
+            for(short[] phaseWeights : weights){
+                for(short weight : phaseWeights){
+                    out.writeShort(weight);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method evaluates a position for the player to move.
+     *
+     * @param player the discs of the player to move.
+     * @param opponent the discs of the opponent.
+     * @return the score, positive is good for the player to move.
+     */
+    public int evaluate(long player, long opponent){
+        short[] w = weights[getPhase(player, opponent)];
+
+        // The board in the orientations that are needed to find every pattern with the same code.
+        long p = player;
+        long pV = Long.reverseBytes(player);
+        long pH = mirror(player);
+        long pVH = Long.reverse(player);
+        long pT = transpose(player);
+        long pTV = Long.reverseBytes(pT);
+        long o = opponent;
+        long oV = Long.reverseBytes(opponent);
+        long oH = mirror(opponent);
+        long oVH = Long.reverse(opponent);
+        long oT = transpose(opponent);
+        long oTV = Long.reverseBytes(oT);
+
+        int score = w[OFFSETS[EDGE] + index(edge(p), edge(o))]
+                + w[OFFSETS[EDGE] + index(edge(pV), edge(oV))]
+                + w[OFFSETS[EDGE] + index(edge(pT), edge(oT))]
+                + w[OFFSETS[EDGE] + index(edge(pTV), edge(oTV))];
+
+        score += w[OFFSETS[CORNER] + index(corner(p), corner(o))]
+                + w[OFFSETS[CORNER] + index(corner(pV), corner(oV))]
+                + w[OFFSETS[CORNER] + index(corner(pH), corner(oH))]
+                + w[OFFSETS[CORNER] + index(corner(pVH), corner(oVH))];
+
+        for(int row = 1; row <= 3; row++){
+            int offset = OFFSETS[ROW_2 + row - 1];
+            score += w[offset + index(row(p, row), row(o, row))]
+                    + w[offset + index(row(pV, row), row(oV, row))]
+                    + w[offset + index(row(pT, row), row(oT, row))]
+                    + w[offset + index(row(pTV, row), row(oTV, row))];
+        }
+
+        score += w[OFFSETS[DIAGONAL_8] + index(diagonal(p, DIAGONAL_8_MASK, 0), diagonal(o, DIAGONAL_8_MASK, 0))]
+                + w[OFFSETS[DIAGONAL_8] + index(diagonal(pH, DIAGONAL_8_MASK, 0), diagonal(oH, DIAGONAL_8_MASK, 0))];
+
+        score += diagonals(w, OFFSETS[DIAGONAL_7], DIAGONAL_7_MASK, 1, p, pT, pH, pV, o, oT, oH, oV)
+                + diagonals(w, OFFSETS[DIAGONAL_6], DIAGONAL_6_MASK, 2, p, pT, pH, pV, o, oT, oH, oV)
+                + diagonals(w, OFFSETS[DIAGONAL_5], DIAGONAL_5_MASK, 3, p, pT, pH, pV, o, oT, oH, oV)
+                + diagonals(w, OFFSETS[DIAGONAL_4], DIAGONAL_4_MASK, 4, p, pT, pH, pV, o, oT, oH, oV);
+        return score;
+    }
+
+    /**
+     * This method evaluates a batch of positions for the player to move in every position, with the same score as
+     * evaluate. Every pattern is one loop over the whole batch. The positions have to be in the same phase, like
+     * the positions after the moves of one position which all have one disc more.
+     *
+     * @param batch the positions, their scores are stored in the batch.
+     */
+    void evaluate(ReversiBatch batch){
+        int count = batch.count;
+        short[] w = weights[getPhase(batch.own[0], batch.opponent[0])];
+        batch.findOrientations();
+        long[] p = batch.own;
+        long[] pV = batch.ownOrientations[0];
+        long[] pH = batch.ownOrientations[1];
+        long[] pVH = batch.ownOrientations[2];
+        long[] pT = batch.ownOrientations[3];
+        long[] pTV = batch.ownOrientations[4];
+        long[] o = batch.opponent;
+        long[] oV = batch.opponentOrientations[0];
+        long[] oH = batch.opponentOrientations[1];
+        long[] oVH = batch.opponentOrientations[2];
+        long[] oT = batch.opponentOrientations[3];
+        long[] oTV = batch.opponentOrientations[4];
+
+        int[] scores = batch.scores;
+        for(int i = 0; i < count; i++){
+            scores[i] = 0;
+        }
+        addEdges(w, p, o, scores, count);
+        addEdges(w, pV, oV, scores, count);
+        addEdges(w, pT, oT, scores, count);
+        addEdges(w, pTV, oTV, scores, count);
+
+        addCorners(w, p, o, scores, count);
+        addCorners(w, pV, oV, scores, count);
+        addCorners(w, pH, oH, scores, count);
+        addCorners(w, pVH, oVH, scores, count);
+
+        for(int row = 1; row <= 3; row++){
+            addRows(w, row, p, o, scores, count);
+            addRows(w, row, pV, oV, scores, count);
+            addRows(w, row, pT, oT, scores, count);
+            addRows(w, row, pTV, oTV, scores, count);
+        }
+
+        addDiagonals(w, OFFSETS[DIAGONAL_8], DIAGONAL_8_MASK, 0, p, o, scores, count);
+        addDiagonals(w, OFFSETS[DIAGONAL_8], DIAGONAL_8_MASK, 0, pH, oH, scores, count);
+        for(int i = 0; i < SHORT_DIAGONAL_MASKS.length; i++){
+            int offset = OFFSETS[DIAGONAL_7 + i];
+            long mask = SHORT_DIAGONAL_MASKS[i];
+            int shift = i + 1;
+            addDiagonals(w, offset, mask, shift, p, o, scores, count);
+            addDiagonals(w, offset, mask, shift, pT, oT, scores, count);
+            addDiagonals(w, offset, mask, shift, pH, oH, scores, count);
+            addDiagonals(w, offset, mask, shift, pV, oV, scores, count);
+        }
+    }
+
+    /**
+     * This method mirrors the discs of a batch of positions in the orientations evaluate needs: vertically,
+     * horizontally, both, along the diagonal, and along the diagonal and then vertically.
+     *
+     * @param discs the discs of every position.
+     * @param orientations the ORIENTATIONS arrays that are filled with the discs in every orientation.
+     * @param count the amount of positions.
+     */
+    static void getOrientations(long[] discs, long[][] orientations, int count){
+        for(int i = 0; i < count; i++){
+            long board = discs[i];
+            long transposed = transpose(board);
+            orientations[0][i] = Long.reverseBytes(board);
+            orientations[1][i] = mirror(board);
+            orientations[2][i] = Long.reverse(board);
+            orientations[3][i] = transposed;
+            orientations[4][i] = Long.reverseBytes(transposed);
+        }
+    }
+
+    /**
+     * This method finds the index of the weight of every pattern on the board, so the weights can be trained. The
+     * score of evaluate is the sum of the weights at these indexes in the weights of the phase, see getWeights.
+     *
+     * @param player the discs of the player to move.
+     * @param opponent the discs of the opponent.
+     * @param features the array that is filled with FEATURES indexes.
+     */
+    public static void getFeatures(long player, long opponent, int[] features){
+        long p = player;
+        long pV = Long.reverseBytes(player);
+        long pH = mirror(player);
+        long pVH = Long.reverse(player);
+        long pT = transpose(player);
+        long pTV = Long.reverseBytes(pT);
+        long o = opponent;
+        long oV = Long.reverseBytes(opponent);
+        long oH = mirror(opponent);
+        long oVH = Long.reverse(opponent);
+        long oT = transpose(opponent);
+        long oTV = Long.reverseBytes(oT);
+
+        int n = 0;
+        features[n++] = OFFSETS[EDGE] + index(edge(p), edge(o));
+        features[n++] = OFFSETS[EDGE] + index(edge(pV), edge(oV));
+        features[n++] = OFFSETS[EDGE] + index(edge(pT), edge(oT));
+        features[n++] = OFFSETS[EDGE] + index(edge(pTV), edge(oTV));
+        features[n++] = OFFSETS[CORNER] + index(corner(p), corner(o));
+        features[n++] = OFFSETS[CORNER] + index(corner(pV), corner(oV));
+        features[n++] = OFFSETS[CORNER] + index(corner(pH), corner(oH));
+        features[n++] = OFFSETS[CORNER] + index(corner(pVH), corner(oVH));
+        for(int row = 1; row <= 3; row++){
+            int offset = OFFSETS[ROW_2 + row - 1];
+            features[n++] = offset + index(row(p, row), row(o, row));
+            features[n++] = offset + index(row(pV, row), row(oV, row));
+            features[n++] = offset + index(row(pT, row), row(oT, row));
+            features[n++] = offset + index(row(pTV, row), row(oTV, row));
+        }
+        features[n++] = OFFSETS[DIAGONAL_8] + index(diagonal(p, DIAGONAL_8_MASK, 0), diagonal(o, DIAGONAL_8_MASK, 0));
+        features[n++] = OFFSETS[DIAGONAL_8] + index(diagonal(pH, DIAGONAL_8_MASK, 0), diagonal(oH, DIAGONAL_8_MASK, 0));
+        long[] masks = {DIAGONAL_7_MASK, DIAGONAL_6_MASK, DIAGONAL_5_MASK, DIAGONAL_4_MASK};
+        for(int i = 0; i < masks.length; i++){
+            int offset = OFFSETS[DIAGONAL_7 + i];
+            int shift = i + 1;
+            features[n++] = offset + index(diagonal(p, masks[i], shift), diagonal(o, masks[i], shift));
+            features[n++] = offset + index(diagonal(pT, masks[i], shift), diagonal(oT, masks[i], shift));
+            features[n++] = offset + index(diagonal(pH, masks[i], shift), diagonal(oH, masks[i], shift));
+            features[n++] = offset + index(diagonal(pV, masks[i], shift), diagonal(oV, masks[i], shift));
+        }
+    }
+
+    /**
+     * This method adds the weights of the 4 orientations of a diagonal that is shorter than 8 positions.
+     */
+    private static int diagonals(short[] w, int offset, long mask, int shift, long p, long pT, long pH, long pV,
+                                 long o, long oT, long oH, long oV){
+        return w[offset + index(diagonal(p, mask, shift), diagonal(o, mask, shift))]
+                + w[offset + index(diagonal(pT, mask, shift), diagonal(oT, mask, shift))]
+                + w[offset + index(diagonal(pH, mask, shift), diagonal(oH, mask, shift))]
+                + w[offset + index(diagonal(pV, mask, shift), diagonal(oV, mask, shift))];
+    }
+
+    /**
+     * This method adds the weight of the edge in one orientation to the scores of a batch.
+     */
+    private static void addEdges(short[] w, long[] p, long[] o, int[] scores, int count){
+        for(int i = 0; i < count; i++){
+            scores[i] += w[OFFSETS[EDGE] + index(edge(p[i]), edge(o[i]))];
+        }
+    }
+
+    /**
+     * This method adds the weight of the corner in one orientation to the scores of a batch.
+     */
+    private static void addCorners(short[] w, long[] p, long[] o, int[] scores, int count){
+        for(int i = 0; i < count; i++){
+            scores[i] += w[OFFSETS[CORNER] + index(corner(p[i]), corner(o[i]))];
+        }
+    }
+
+    /**
+     * This method adds the weight of a row in one orientation to the scores of a batch.
+     */
+    private static void addRows(short[] w, int row, long[] p, long[] o, int[] scores, int count){
+        int offset = OFFSETS[ROW_2 + row - 1];
+        for(int i = 0; i < count; i++){
+            scores[i] += w[offset + index(row(p[i], row), row(o[i], row))];
+        }
+    }
+
+    /**
+     * This method adds the weight of a diagonal in one orientation to the scores of a batch.
+     */
+    private static void addDiagonals(short[] w, int offset, long mask, int shift, long[] p, long[] o, int[] scores,
+                                     int count){
+        for(int i = 0; i < count; i++){
+            scores[i] += w[offset + index(diagonal(p[i], mask, shift), diagonal(o[i], mask, shift))];
+        }
+    }
+
+    /**
+     * This method returns the index of a pattern from the discs of both players in it.
+     */
+    private static int index(int playerBits, int opponentBits){
+        return BASE3[playerBits] + 2 * BASE3[opponentBits];
+    }
+
+    /**
+     * This method returns the discs in the top edge and both X positions below it, in the order of the pattern.
+     */
+    private static int edge(long discs){
+        return (int) (discs & 0xFF | discs >>> 1 & 0x100 | discs >>> 5 & 0x200);
+    }
+
+    /**
+     * This method returns the discs in the 3x3 square in the top left corner, in the order of the pattern.
+     */
+    private static int corner(long discs){
+        return (int) (discs & 0x7 | discs >>> 5 & 0x38 | discs >>> 10 & 0x1C0);
+    }
+
+    private static int row(long discs, int row){
+        return (int) (discs >>> (row * 8) & 0xFF);
+    }
+
+    /**
+     * This method returns the discs on a diagonal, the multiplication moves the position of every row to the
+     * top row without overlapping.
+     */
+    private static int diagonal(long discs, long mask, int shift){
+        return (int) ((discs & mask) * LEFT_COLUMN >>> (56 + shift));
+    }
+
+    /**
+     * This method mirrors the board horizontally, the columns change places.
+     */
+    private static long mirror(long discs){
+        discs = discs >>> 1 & 0x5555555555555555L | (discs & 0x5555555555555555L) << 1;
+        discs = discs >>> 2 & 0x3333333333333333L | (discs & 0x3333333333333333L) << 2;
+        return discs >>> 4 & 0x0F0F0F0F0F0F0F0FL | (discs & 0x0F0F0F0F0F0F0F0FL) << 4;
+    }
+
+    /**
+     * This method mirrors the board along the diagonal from the top left to the bottom right, rows become columns.
+     */
+    private static long transpose(long discs){
+        long t = 0x0F0F0F0F00000000L & (discs ^ discs << 28);
+        discs ^= t ^ t >>> 28;
+        t = 0x3333000033330000L & (discs ^ discs << 14);
+        discs ^= t ^ t >>> 14;
+        t = 0x5500550055005500L & (discs ^ discs << 7);
+        return discs ^ t ^ t >>> 7;
+    }
+
+    /**
+     * This method returns the phase of the game of a position.
+     *
+     * @param player the discs of the player to move.
+     * @param opponent the discs of the opponent.
+     * @return the phase, from 0 to PHASES - 1.
+     */
+    public static int getPhase(long player, long opponent){
+        return Math.min(PHASES - 1, (ReversiBitboard.count(player | opponent) - 4) / 6);
+    }
+
+    /**
+     * This method returns the amount of weights of one phase.
+     *
+     * @return the amount of weights.
+     */
+    public static int getSize(){
+        return SIZE;
+    }
+
+    /**
+     * This method returns the weights of a phase. Changes to the array change the weights of this evaluator.
+     *
+     * @param phase the phase of the game.
+     * @return the weights of the phase.
+     */
+    public short[] getWeights(int phase){
+        return weights[phase];
+    }
+
+    /**
+     * This method returns a checksum of all weights. Parameters that were calibrated with these weights store it,
+     * see MultiProbCut.getEvaluation.
+     *
+     * @return the checksum, never 0.
+     */
+    public long getChecksum(){
+        long checksum = 0xCBF29CE484222325L;
+        for(short[] phase : weights){
+            for(short weight : phase){
+                checksum = (checksum ^ (weight & 0xFFFF)) * 0x100000001B3L;
+            }
+        }
+        return checksum != 0 ? checksum : 1;
+    }
+
+    /**
+     * This method returns 3 to the power of n.
+     */
+    private static int pow3(int n){
+        int result = 1;
+        for(int i = 0; i < n; i++){
+            result *= 3;
+        }
+        return result;
+    }
+
+    /**
+     * This method returns the position in one of the 8 orientations of the board: mirrored horizontally (bit 0),
+     * vertically (bit 1) and along the diagonal (bit 2).
+     */
+    private static int transform(int square, int symmetry){
+        int row = square / 8;
+        int col = square % 8;
+        if((symmetry & 1) != 0){
+            col = 7 - col;
+        }
+        if((symmetry & 2) != 0){
+            row = 7 - row;
+        }
+        if((symmetry & 4) != 0){
+            int old = row;
+            row = col;
+            col = old;
+        }
+        return row * 8 + col;
+    }
+}
@@ -0,0 +1,531 @@
+package src.gamemodules.reversigame;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import src.gameframework.GameBoardLogic;
+import src.gameframework.MoveList;
+import src.gameframework.Zobrist;
+import src.gameframework.aistrategies.NegamaxSearch;
+import src.gameframework.aistrategies.SearchPosition;
+
+/**
+ * Reversi position for our negamax search. This adds the reversi evaluation and quiescence search to the
+ * search. A leaf is unstable when a corner can be taken, or when the player to move has almost no moves left. The
+ * search deepens unstable leafs until they are quiet, within the limits set on the strategy.
+ *
+ * The position is stored as bitboards, see ReversiBitboard. The hash is the same as the hash of a
+ * ReversiBoardLogic with the same discs, and it's updated for every disc that changes.
+ *
+ * Positions are evaluated with stability, mobility and corners, with the pattern tables of a
+ * ReversiPatternEvaluator, or with the neural network of a ReversiNeuralEvaluator. The accumulators of the network
+ * are kept on a stack: a move copies the accumulators of the current position and updates them with the discs that
+ * changed, taking the move back drops them again. Stability costs more than the other terms together, so it's computed
+ * last and skipped when the other terms are so far outside of the window of the search that stability can't bring
+ * the score back in it.
+ */
+public class ReversiSearchPosition implements SearchPosition {
+
+    private static final long[] ZOBRIST_KEYS = ReversiBoardLogic.ZOBRIST_KEYS;
+
+    // The 4 corners of the board.
+    private static final long CORNERS = 0x8100000000000081L;
+
+    // Weights of a valid move, and of an empty position next to the discs of the opponent.
+    private static final int MOBILITY_WEIGHT = 4;
+    private static final int POTENTIAL_MOBILITY_WEIGHT = 2;
+
+    // Largest stability term of 99.9% of the positions in every phase of the game, found in the positions of 400
+    // games. When the other terms are further than this outside of the window, stability isn't computed.
+    private static final int[] STABILITY_MARGINS = {0, 1, 12, 29, 52, 82, 122, 174, 238, 295};
+
+    // Evaluations that stopped before stability was computed, and evaluations that computed every term.
+    private static final LongAdder lazyEvaluations = new LongAdder();
+    private static final LongAdder fullEvaluations = new LongAdder();
+
+    // Discs of player 1 and player 2.
+    private long discs1;
+    private long discs2;
+    private int player;
+    private long hash;
+
+    // Pattern evaluation, or null to use the evaluation of evaluateBoard.
+    private final ReversiPatternEvaluator evaluator;
+
+    // Neural network evaluation and the accumulators of every move made on this position, or null. The accumulators
+    // of the current position are at the top of the stack.
+    private final ReversiNeuralEvaluator network;
+    private short[][] accumulators;
+    private int top;
+
+    // Scores of the moves that are being sorted by orderMoves.
+    private final int[] orderScores = new int[64];
+
+    // The positions after the moves of evaluateMoves, created the first time moves are evaluated.
+    private ReversiBatch batch;
+
+    /**
+     * Constructor for ReversiSearchPosition. The discs on the board are copied, so the board that is passed isn't
+     * changed by the search.
+     *
+     * @param board the gameBoard that should be searched.
+     * @param player the player that is to move.
+     */
+    public ReversiSearchPosition(GameBoardLogic board, int player){
+        this(board, player, (ReversiPatternEvaluator) null);
+    }
+
+    /**
+     * Constructor for ReversiSearchPosition with pattern evaluation.
+     *
+     * @param board the gameBoard that should be searched.
+     * @param player the player that is to move.
+     * @param evaluator the pattern evaluation, or null to use stability, mobility and corners.
+     */
+    public ReversiSearchPosition(GameBoardLogic board, int player, ReversiPatternEvaluator evaluator){
+        this(ReversiBitboard.fromBoard(board, 1), ReversiBitboard.fromBoard(board, 2), player, board.hash(),
+                evaluator, null, null);
+    }
+
+    /**
+     * Constructor for ReversiSearchPosition with neural network evaluation.
+     *
+     * @param board the gameBoard that should be searched.
+     * @param player the player that is to move.
+     * @param network the neural network evaluation.
+     */
+    public ReversiSearchPosition(GameBoardLogic board, int player, ReversiNeuralEvaluator network){
+        this(ReversiBitboard.fromBoard(board, 1), ReversiBitboard.fromBoard(board, 2), player, board.hash(),
+                null, network, network.createAccumulator(ReversiBitboard.fromBoard(board, 1),
+                        ReversiBitboard.fromBoard(board, 2)));
+    }
+
+    private ReversiSearchPosition(long discs1, long discs2, int player, long hash, ReversiPatternEvaluator evaluator,
+                                  ReversiNeuralEvaluator network, short[] accumulator){
+        this.discs1 = discs1;
+        this.discs2 = discs2;
+        this.player = player;
+        this.hash = hash;
+        this.evaluator = evaluator;
+        this.network = network;
+        if(network != null){
+            this.accumulators = new short[16][];
+            this.accumulators[0] = accumulator;
+        }
+    }
+
+    @Override
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * This method returns the discs of a player.
+     *
+     * @param player the player, 1 or 2.
+     * @return the bitboard with the discs of the player.
+     */
+    public long getDiscs(int player) {
+        return player == 1 ? discs1 : discs2;
+    }
+
+    /**
+     * This method puts all valid moves in the list, from the lowest position to the highest.
+     *
+     * @param moves the list that will be filled, the list is cleared first.
+     */
+    @Override
+    public void generateMoves(MoveList moves) {
+        moves.clear();
+        long valid = getMoves(player);
+        while(valid != 0){
+            moves.add(Long.numberOfTrailingZeros(valid));
+            valid &= valid - 1;
+        }
+    }
+
+    /**
+     * This method sorts the moves, corners first and after that the moves that leave the opponent the fewest moves.
+     * Few moves for the opponent means few moves to search below the move, and often a good move as well.
+     *
+     * @param moves the moves to sort.
+     */
+    @Override
+    public void orderMoves(MoveList moves) {
+        long own = getDiscs(player);
+        long opponent = getDiscs(3 - player);
+        for(int i = 0; i < moves.size(); i++){
+            int move = moves.get(i);
+            long flips = ReversiBitboard.getFlips(move, own, opponent);
+            int score = ReversiBitboard.count(ReversiBitboard.getMoves(opponent & ~flips, own | flips | 1L << move));
+            if((CORNERS & 1L << move) != 0){
+                score -= 64;
+            }
+
+            // Insertion sort, lower scores go first.
+            int j = i;
+            while(j > 0 && orderScores[j - 1] > score){
+                orderScores[j] = orderScores[j - 1];
+                moves.swap(j, j - 1);
+                j--;
+            }
+            orderScores[j] = score;
+        }
+    }
+
+    /**
+     * This method makes a move, the discs that are flipped are returned as undo token.
+     *
+     * @param move the move to make.
+     * @return the flipped discs.
+     */
+    @Override
+    public long doMove(int move) {
+        long flips = 0;
+        if(move != PASS){
+            flips = ReversiBitboard.getFlips(move, getDiscs(player), getDiscs(3 - player));
+            changeDiscs(move, flips);
+            if(network != null){
+                pushAccumulator(move, flips);
+            }
+        }
+        player = 3 - player;
+        return flips;
+    }
+
+    @Override
+    public void undoMove(int move, long undo) {
+        player = 3 - player;
+        if(move != PASS){
+            changeDiscs(move, undo);
+            if(network != null){
+                top--;
+            }
+        }
+    }
+
+    /**
+     * A game of reversi only ends when both players can't move, the search detects that itself.
+     *
+     * @return false.
+     */
+    @Override
+    public boolean isTerminal() {
+        return false;
+    }
+
+    /**
+     * This method evaluates the board for the player to move.
+     *
+     * @return the score of the board.
+     */
+    @Override
+    public int evaluate() {
+        return evaluate(-NegamaxSearch.INFINITY, NegamaxSearch.INFINITY);
+    }
+
+    /**
+     * This method evaluates the board for the player to move, stability is skipped when the score is clearly
+     * outside of the window. The pattern and network evaluations have no expensive terms, so they always evaluate
+     * the whole board.
+     *
+     * @param alpha the lowest score the player to move is already sure of.
+     * @param beta the highest score the opponent allows.
+     * @return the score of the board, or a bound outside of the window.
+     */
+    @Override
+    public int evaluate(int alpha, int beta) {
+        if(evaluator != null || network != null){
+            return evaluateModel();
+        }
+        return evaluateBoard(alpha, beta);
+    }
+
+    /**
+     * This method evaluates the positions after a range of moves. The positions are stored as a structure of arrays
+     * in a ReversiBatch, and their moves are found in loops over the whole batch. With the Vector API those loops
+     * run on SIMD registers, see isBatchVectorized.
+     *
+     * The pattern evaluation adds the weights of every pattern in one loop over the batch. The evaluation with
+     * stability, mobility and corners computes mobility in one loop, and stability one position at a time, only
+     * for quiet positions that are close enough to the window. A position at the end of the game has no moves, so
+     * it's never quiet and the search evaluates it.
+     *
+     * @param moves the moves.
+     * @param from the index of the first move to evaluate.
+     * @param alpha the alpha of the positions after the moves.
+     * @param beta the beta of the positions after the moves.
+     * @param scores the array that is filled with the scores.
+     * @return false with the neural network evaluation, its accumulators are updated by every move.
+     */
+    @Override
+    public boolean evaluateMoves(MoveList moves, int from, int alpha, int beta, int[] scores) {
+        if(network != null){
+            return false;
+        }
+        if(batch == null){
+            batch = new ReversiBatch();
+        }
+
+        // After the move the opponent is to move.
+        long own = getDiscs(player);
+        long opponent = getDiscs(3 - player);
+        int count = moves.size() - from;
+        for(int i = 0; i < count; i++){
+            int move = moves.get(from + i);
+            long flips = ReversiBitboard.getFlips(move, own, opponent);
+            batch.own[i] = opponent & ~flips;
+            batch.opponent[i] = own | flips | 1L << move;
+        }
+        batch.count = count;
+
+        // The pattern evaluation only needs the moves of the player to move, to see if the position is quiet.
+        batch.findMoves(evaluator == null);
+        if(evaluator != null){
+            evaluator.evaluate(batch);
+        } else {
+            for(int i = 0; i < count; i++){
+                batch.scores[i] = getMobilityScore(batch.own[i], batch.opponent[i], batch.ownMoves[i],
+                        batch.opponentMoves[i]);
+            }
+        }
+
+        for(int i = 0; i < count; i++){
+            long valid = batch.ownMoves[i];
+            if((valid & valid - 1) == 0 || (valid & CORNERS) != 0){
+                scores[from + i] = UNSTABLE;
+            } else if(evaluator != null){
+                scores[from + i] = batch.scores[i];
+            } else {
+                scores[from + i] = addStability(batch.own[i], batch.opponent[i], batch.scores[i], alpha, beta);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method checks if batches of positions are handled with the Vector API. That's only the case when the
+     * JVM runs with --add-modules jdk.incubator.vector, otherwise plain loops are used.
+     *
+     * @return true if the Vector API is used.
+     */
+    public static boolean isBatchVectorized() {
+        return ReversiBatch.isVectorized();
+    }
+
+    /**
+     * This method returns the amount of evaluations that skipped stability because the score was clearly outside
+     * of the window, counted for all positions since the last reset.
+     *
+     * @return the amount of evaluations.
+     */
+    public static long getLazyEvaluations() {
+        return lazyEvaluations.sum();
+    }
+
+    /**
+     * This method returns the amount of evaluations that computed every term, counted for all positions since the
+     * last reset.
+     *
+     * @return the amount of evaluations.
+     */
+    public static long getFullEvaluations() {
+        return fullEvaluations.sum();
+    }
+
+    /**
+     * This method sets the amount of lazy and full evaluations back to 0.
+     */
+    public static void resetEvaluationCounts() {
+        lazyEvaluations.reset();
+        fullEvaluations.reset();
+    }
+
+    /**
+     * A leaf is unstable when the player to move can take a corner, because the last move gave it away on an X or
+     * C position, or when the player has at most one move. With so few moves the player can be forced to give away
+     * a strong position. Both are checked with masks on the moves of the player.
+     *
+     * @return true if the position is quiet.
+     */
+    @Override
+    public boolean isQuiet() {
+        long valid = getMoves(player);
+        return (valid & valid - 1) != 0 && (valid & CORNERS) == 0;
+    }
+
+    /**
+     * The phases are the same as those of the pattern evaluation, see ReversiPatternEvaluator.getPhase.
+     *
+     * @return the phase.
+     */
+    @Override
+    public int getPhase() {
+        return ReversiPatternEvaluator.getPhase(discs1, discs2);
+    }
+
+    @Override
+    public long hash() {
+        return player == 2 ? hash ^ Zobrist.SIDE_TO_MOVE : hash;
+    }
+
+    @Override
+    public SearchPosition copy() {
+        return new ReversiSearchPosition(discs1, discs2, player, hash, evaluator, network,
+                network != null ? accumulators[top].clone() : null);
+    }
+
+    /**
+     * This method places a disc of the player to move and flips discs of the opponent, or takes that back.
+     * Both are the same XOR operations.
+     */
+    private void changeDiscs(int move, long flips){
+        long bit = 1L << move;
+        int opponent = 3 - player;
+        if(player == 1){
+            discs1 ^= flips | bit;
+            discs2 ^= flips;
+        } else {
+            discs2 ^= flips | bit;
+            discs1 ^= flips;
+        }
+
+        hash ^= ZOBRIST_KEYS[move * 3 + player];
+        while(flips != 0){
+            int pos = Long.numberOfTrailingZeros(flips);
+            hash ^= ZOBRIST_KEYS[pos * 3 + player] ^ ZOBRIST_KEYS[pos * 3 + opponent];
+            flips &= flips - 1;
+        }
+    }
+
+    /**
+     * This method puts the accumulators after a move of the player to move on the stack. The arrays on the stack
+     * are reused, so after the first moves nothing is allocated.
+     */
+    private void pushAccumulator(int move, long flips){
+        short[] current = accumulators[top];
+        if(++top == accumulators.length){
+            accumulators = Arrays.copyOf(accumulators, top * 2);
+        }
+        short[] next = accumulators[top];
+        if(next == null){
+            next = accumulators[top] = new short[current.length];
+        }
+        System.arraycopy(current, 0, next, 0, current.length);
+        network.doMove(next, player, move, flips);
+    }
+
+    /**
+     * This method returns the valid moves of a player as a bitboard.
+     */
+    private long getMoves(int player){
+        return ReversiBitboard.getMoves(getDiscs(player), getDiscs(3 - player));
+    }
+
+    /**
+     * This method evaluates the board of this position. The current state of the board will be scored based on
+     * stability, mobility, potential mobility and bias. If this is the end of the game we return the result instead.
+     * Stability is computed last, when the other terms plus or minus the margin of the phase are outside of the
+     * window that bound is returned instead.
+     *
+     * @param alpha the lowest score the player to move is already sure of.
+     * @param beta the highest score the opponent allows.
+     * @return a given value which indicates the score of the board, positive is good for the player to move.
+     */
+    private int evaluateBoard(int alpha, int beta){
+        long own = getDiscs(player);
+        long opponent = getDiscs(3 - player);
+        long ownMoves = ReversiBitboard.getMoves(own, opponent);
+        long opponentMoves = ReversiBitboard.getMoves(opponent, own);
+        if(isGameOver(own, opponent, ownMoves, opponentMoves)){
+            return getResult(own, opponent);
+        }
+        return addStability(own, opponent, getMobilityScore(own, opponent, ownMoves, opponentMoves), alpha, beta);
+    }
+
+    /**
+     * This method checks if this is the end of the game, then the outcome of the game is returned instead of the
+     * evaluation.
+     */
+    private static boolean isGameOver(long own, long opponent, long ownMoves, long opponentMoves){
+        return ownMoves == 0 && opponentMoves == 0 && ReversiBitboard.count(own | opponent) + 4 > 50;
+    }
+
+    /**
+     * This method returns the outcome of a finished game for the player to move: 5000 plus the disc difference
+     * for a win, minus that for a loss.
+     */
+    private static int getResult(long own, long opponent){
+        int result = ReversiBitboard.count(own) - ReversiBitboard.count(opponent);
+        if(result < 0){
+            result -= 5000;
+        } else if(result > 0){
+            result += 5000;
+        }
+        return result;
+    }
+
+    /**
+     * This method computes the cheap terms of the evaluation for the player to move: mobility, potential mobility
+     * and corners. Potential mobility counts the empty positions next to discs of the opponent, moves can only be
+     * made there later.
+     */
+    private static int getMobilityScore(long own, long opponent, long ownMoves, long opponentMoves){
+        long empty = ~(own | opponent);
+        int mobility = ReversiBitboard.count(ownMoves) - ReversiBitboard.count(opponentMoves);
+        int potentialMobility = ReversiBitboard.count(ReversiBitboard.getNeighbours(opponent) & empty)
+                - ReversiBitboard.count(ReversiBitboard.getNeighbours(own) & empty);
+        return mobility * MOBILITY_WEIGHT + potentialMobility * POTENTIAL_MOBILITY_WEIGHT + getBias(own, opponent);
+    }
+
+    /**
+     * This method adds stability to the cheap terms of the evaluation, unless stability can't bring the score back
+     * in the window. Then a bound outside of the window is returned.
+     */
+    private static int addStability(long own, long opponent, int score, int alpha, int beta){
+        int margin = STABILITY_MARGINS[ReversiPatternEvaluator.getPhase(own, opponent)];
+        if(score + margin <= alpha){
+            lazyEvaluations.increment();
+            return score + margin;
+        }
+        if(score - margin >= beta){
+            lazyEvaluations.increment();
+            return score - margin;
+        }
+        fullEvaluations.increment();
+
+        // The stability weight has been found through 70000+ tests.
+        int turn = ReversiBitboard.count(own | opponent) + 4;
+        int stability = ReversiBitboard.count(ReversiStability.getStableDiscs(own, opponent))
+                - ReversiBitboard.count(ReversiStability.getStableDiscs(opponent, own));
+        return score + stability * turn / 12;
+    }
+
+    /**
+     * This method evaluates the board with the neural network or the pattern tables, for the player to move. Only
+     * the moves of the player to move are generated to see if the game is over, the moves of the opponent only when
+     * that player can't move.
+     *
+     * @return the score of the board, positive is good for the player to move.
+     */
+    private int evaluateModel(){
+        long own = getDiscs(player);
+        long opponent = getDiscs(3 - player);
+        if(ReversiBitboard.getMoves(own, opponent) == 0 && ReversiBitboard.getMoves(opponent, own) == 0){
+            return getResult(own, opponent);
+        }
+        if(network != null){
+            return network.evaluate(accumulators[top], player, ReversiPatternEvaluator.getPhase(own, opponent));
+        }
+        return evaluator.evaluate(own, opponent);
+    }
+
+    /**
+     * This method calculates a bias value. The bias value is used to add weight
+     * to the evaluation of certain moves. For now we only use a bias for the corner positions.
+     * @return the bias value
+     */
+    private static int getBias(long own, long opponent){
+        return 50 * (ReversiBitboard.count(own & CORNERS) - ReversiBitboard.count(opponent & CORNERS));
+    }
+}
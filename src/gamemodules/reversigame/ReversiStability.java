@@ -0,0 +1,189 @@
+package src.gamemodules.reversigame;
+
+/**
+ * Finds the stable discs of a reversi position on bitboards. A stable disc can never be flipped again, whatever
+ * moves are made for the rest of the game.
+ *
+ * Discs on the edges can only be flipped along the edge, so their stability is looked up in a table with every
+ * possible edge. For the other discs all 4 lines through the disc are checked. A disc can't be flipped along a line
+ * that is full, or along a line where it's next to a stable disc of the same player. Stable discs make more discs
+ * stable, so this is repeated until no new stable discs are found.
+ */
+public final class ReversiStability {
+
+    private static final long LEFT_COLUMN = 0x0101010101010101L;
+    private static final long RIGHT_COLUMN = 0x8080808080808080L;
+
+    // All positions that are not on an edge.
+    private static final long INTERIOR = 0x007E7E7E7E7E7E00L;
+
+    // Stable positions of every edge, indexed by the discs of the player in the low 8 bits and the discs of the
+    // opponent in the high 8 bits. Both players' stable discs are in the result.
+    private static final byte[] EDGE_TABLE = new byte[1 << 16];
+
+    // The lines of the board in every direction: rows, columns and both diagonals.
+    private static final long[] ROWS = new long[8];
+    private static final long[] COLUMNS = new long[8];
+    private static final long[] DIAGONALS = new long[15];
+    private static final long[] ANTI_DIAGONALS = new long[15];
+
+    static {
+        boolean[] done = new boolean[1 << 16];
+        for(int player = 0; player < 256; player++){
+            for(int opponent = 0; opponent < 256; opponent++){
+                if((player & opponent) == 0){
+                    getEdgeStable(player, opponent, done);
+                }
+            }
+        }
+
+        for(int pos = 0; pos < 64; pos++){
+            int row = pos / 8;
+            int col = pos % 8;
+            ROWS[row] |= 1L << pos;
+            COLUMNS[col] |= 1L << pos;
+            DIAGONALS[row - col + 7] |= 1L << pos;
+            ANTI_DIAGONALS[row + col] |= 1L << pos;
+        }
+    }
+
+    private ReversiStability() {
+    }
+
+    /**
+     * This method finds the stable discs of a player.
+     *
+     * @param player the discs of the player.
+     * @param opponent the discs of the opponent.
+     * @return a bitboard with the stable discs of the player.
+     */
+    public static long getStableDiscs(long player, long opponent){
+        long stable = getStableEdges(player, opponent) & player;
+
+        long occupied = player | opponent;
+        long fullRows = getFullLines(occupied, ROWS);
+        long fullColumns = getFullLines(occupied, COLUMNS);
+        long fullDiagonals = getFullLines(occupied, DIAGONALS);
+        long fullAntiDiagonals = getFullLines(occupied, ANTI_DIAGONALS);
+
+        long interior = player & INTERIOR;
+        long old;
+        do {
+            old = stable;
+            long rows = fullRows | (stable << 1 & ~LEFT_COLUMN) | (stable >>> 1 & ~RIGHT_COLUMN);
+            long columns = fullColumns | stable << 8 | stable >>> 8;
+            long diagonals = fullDiagonals | (stable << 9 & ~LEFT_COLUMN) | (stable >>> 9 & ~RIGHT_COLUMN);
+            long antiDiagonals = fullAntiDiagonals | (stable << 7 & ~RIGHT_COLUMN) | (stable >>> 7 & ~LEFT_COLUMN);
+            stable |= interior & rows & columns & diagonals & antiDiagonals;
+        } while(stable != old);
+
+        return stable;
+    }
+
+    /**
+     * This method finds the stable discs on the 4 edges, for both players.
+     */
+    private static long getStableEdges(long player, long opponent){
+        long stable = 0;
+
+        // Top and bottom row.
+        stable |= lookupEdge((int) player & 0xFF, (int) opponent & 0xFF);
+        stable |= (long) lookupEdge((int) (player >>> 56), (int) (opponent >>> 56)) << 56;
+
+        // Left and right column.
+        stable |= toColumn(lookupEdge(fromColumn(player, 0), fromColumn(opponent, 0)), 0);
+        stable |= toColumn(lookupEdge(fromColumn(player, 7), fromColumn(opponent, 7)), 7);
+        return stable;
+    }
+
+    private static int lookupEdge(int player, int opponent){
+        return EDGE_TABLE[player | opponent << 8] & 0xFF;
+    }
+
+    /**
+     * This method puts the discs of a column in the 8 low bits, the top position in the lowest bit.
+     */
+    private static int fromColumn(long discs, int column){
+        int edge = 0;
+        for(int row = 0; row < 8; row++){
+            edge |= (int) (discs >>> (row * 8 + column) & 1) << row;
+        }
+        return edge;
+    }
+
+    /**
+     * This method puts 8 bits back in a column, the opposite of fromColumn.
+     */
+    private static long toColumn(int edge, int column){
+        long discs = 0;
+        for(int row = 0; row < 8; row++){
+            discs |= (long) (edge >>> row & 1) << (row * 8 + column);
+        }
+        return discs;
+    }
+
+    /**
+     * This method returns all lines that are full.
+     */
+    private static long getFullLines(long occupied, long[] lines){
+        long full = 0;
+        for(long line : lines){
+            if((occupied & line) == line){
+                full |= line;
+            }
+        }
+        return full;
+    }
+
+    /**
+     * This method fills the edge table for an edge and all edges that can follow it. A disc is stable when it
+     * has the same color and is stable after every move that can be made on the edge, by either player. Moves
+     * are allowed on every empty position, because they can be valid because of discs outside the edge.
+     */
+    private static int getEdgeStable(int player, int opponent, boolean[] done){
+        int index = player | opponent << 8;
+        if(done[index]){
+            return EDGE_TABLE[index] & 0xFF;
+        }
+
+        int occupied = player | opponent;
+        int stable = occupied;
+        for(int pos = 0; pos < 8 && stable != 0; pos++){
+            if((occupied & 1 << pos) != 0){
+                continue;
+            }
+            int flips = getEdgeFlips(pos, player, opponent);
+            int newPlayer = player | flips | 1 << pos;
+            int newOpponent = opponent & ~flips;
+            stable &= getEdgeStable(newPlayer, newOpponent, done) & ~flips;
+
+            flips = getEdgeFlips(pos, opponent, player);
+            newOpponent = opponent | flips | 1 << pos;
+            newPlayer = player & ~flips;
+            stable &= getEdgeStable(newPlayer, newOpponent, done) & ~flips;
+        }
+
+        EDGE_TABLE[index] = (byte) stable;
+        done[index] = true;
+        return stable;
+    }
+
+    /**
+     * This method finds the discs of the opponent that are flipped by a move on an edge.
+     */
+    private static int getEdgeFlips(int pos, int player, int opponent){
+        int flips = 0;
+        for(int dir = -1; dir <= 1; dir += 2){
+            int line = 0;
+            int next = pos + dir;
+            while(next >= 0 && next < 8 && (opponent & 1 << next) != 0){
+                line |= 1 << next;
+                next += dir;
+            }
+            if(next >= 0 && next < 8 && (player & 1 << next) != 0){
+                flips |= line;
+            }
+        }
+        return flips;
+    }
+}
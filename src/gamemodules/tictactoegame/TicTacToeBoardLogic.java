@@ -1,12 +1,16 @@
 package src.gamemodules.tictactoegame;
 
 import src.gameframework.GameBoardLogic;
+import src.gameframework.Zobrist;
 
 /**
  * This class implements the game board logic for the game Tic Tac Toe.
  */
 public class TicTacToeBoardLogic extends GameBoardLogic {
 
+    // Zobrist keys for the 9 positions of the tic tac toe board.
+    private static final long[] ZOBRIST_KEYS = Zobrist.createKeys(9, 0x54696354616354L);
+
     /**
      * This method initialises the default gameBoard for tic tac toe.
      */
@@ -31,6 +35,16 @@ public class TicTacToeBoardLogic extends GameBoardLogic {
         System.out.println("-------------");
     }
 
+    /**
+     * This method returns the Zobrist key table for tic tac toe.
+     *
+     * @return the key table.
+     */
+    @Override
+    protected long[] getZobristKeys() {
+        return ZOBRIST_KEYS;
+    }
+
     /**
      * This method returns the name of the game.
      *
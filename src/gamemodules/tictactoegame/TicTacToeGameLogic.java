@@ -1,8 +1,7 @@
 package src.gamemodules.tictactoegame;
 
-import java.util.ArrayList;
-
 import src.gameframework.GameLogic;
+import src.gameframework.MoveList;
 
 /**
  * This class contains logic for the game Tic Tac Toe.
@@ -17,22 +16,19 @@ public class TicTacToeGameLogic extends GameLogic {
     }
 
     /**
-     * Method that returns all available valid moves for a given player.
+     * Method that puts all available valid moves for a given player in a MoveList.
      *
      * @param player integer representing the player that should be checked for.
-     * @return ArrayList containing all valid moves.
+     * @param moves the list that will be filled with all valid moves.
      */
     @Override
-    public ArrayList<Integer> getMoves(int player) {
-        ArrayList<Integer> result = new ArrayList<>();
-
-        for(int pos = 0; pos<getBoard().getBoard().length; pos++){
+    public void generateMoves(int player, MoveList moves) {
+        moves.clear();
+        for(int pos = 0; pos < 9; pos++){
             if(getBoard().getBoardPos(pos) == 0){
-                result.add(pos);
+                moves.add(pos);
             }
         }
-
-        return result;
     }
 
     /**
@@ -41,10 +37,23 @@ public class TicTacToeGameLogic extends GameLogic {
      *
      * @param pos position of the move.
      * @param player player that is making the move.
+     * @return the position of the move.
      */
     @Override
-    public void doMove(int pos, int player) {
+    public long doMove(int pos, int player) {
         getBoard().setBoardPos(pos, player);
+        return pos;
+    }
+
+    /**
+     * This method takes back a move by emptying the position again.
+     *
+     * @param pos position of the move.
+     * @param undo the undo token returned by doMove.
+     */
+    @Override
+    public void undoMove(int pos, long undo) {
+        getBoard().setBoardPos(pos, 0);
     }
 
     /**
@@ -131,6 +140,6 @@ public class TicTacToeGameLogic extends GameLogic {
      */
     @Override
     public boolean isValid(int move, int player) {
-        return getBoard().getBoardPos(move) == 0;
+        return move >= 0 && move < 9 && getBoard().getBoardPos(move) == 0;
     }
 }
@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Random;
 
 import src.gameframework.GameBoardLogic;
+import src.gameframework.GameLogic;
 import src.gameframework.aistrategies.MinimaxStrategy;
 
 /**
@@ -25,62 +26,6 @@ public class TicTacToeMinimaxStrategy extends MinimaxStrategy {
     // Used for generating random moves.
     private static Random random = new Random();
 
-    /**
-     * This method evaluates the the gameboard. A win situation returns
-     * 1, a lose situation returns -1. A draw returns 0.
-     *
-     * @param b         the board of the game
-     * @return          the amount of points after the evaluation
-     */
-    private int evaluate(GameBoardLogic b){
-        int[] board = b.getBoard();
-
-        // Check rows for a win position.
-        int rowCounter = 0;
-        for(int row = 0; row < 3; row++) {
-            if(board[rowCounter] == board[rowCounter + 1] && board[rowCounter + 1] == board[rowCounter + 2]) {
-                if(board[rowCounter] == 1) {
-                    return 1;
-                } else if(board[rowCounter] == 2) {
-                    return -1;
-                }
-            }
-            rowCounter = rowCounter + 3;
-        }
-
-        // Check columns for a win position.
-        int colCounter = 0;
-        for(int col = 0; col < 3; col++) {
-            if(board[colCounter] == board[colCounter + 3] && board[colCounter + 3] == board[colCounter + 6]) {
-                if(board[colCounter] == 1) {
-                    return 1;
-                } else if(board[colCounter] == 2) {
-                    return -1;
-                }
-            }
-            colCounter = colCounter + 1;
-        }
-
-        // Check if there is a win position for diagonals
-        if(board[0] == board[4] && board[4] == board[8]) {
-            if (board[0] == 1) {
-                return 1;
-            } else if(board[0] == 2) {
-                return -1;
-            }
-        }
-        if(board[2] == board[4] && board[4] == board[6]) {
-            if (board[2] == 1) {
-                return 1;
-            } else if(board[2] == 2) {
-                return -1;
-            }
-        }
-
-        // If it got here there is no winner yet, return 0.
-        return 0;
-    }
-
     /**
      * This method returns the best possible move based on
      * the minimax algorithm adapted to the difficulty
@@ -90,109 +35,32 @@ public class TicTacToeMinimaxStrategy extends MinimaxStrategy {
      * @return          int with the best possible position
      */
     @Override
-    public int getBestMove(GameBoardLogic b, int p) {
-        TicTacToeGameLogic logic = new TicTacToeGameLogic();
-        logic.setBoard(b);
-
+    protected int findBestMove(GameBoardLogic b, int p) {
         switch (super.getDifficulty()) {
             case 0:
                 return getRandomValidMove(b, p);
             case 1:
-                return calculateBestMove(p, 1, logic, b);
+                return calculateBestMove(p, 1, b);
             case 2:
-                return calculateBestMove(p, 2, logic, b);
+                return calculateBestMove(p, 2, b);
             case 3:
-                return calculateBestMove(p, 5, logic, b);
+                return calculateBestMove(p, 5, b);
             default:
                 return -1;
         }
     }
 
     /**
-     * Method that finds all valid moves, and calls the minimax algorithm on them to find
-     * out which of the moves is the best choice.
+     * Method that searches all valid moves with our negamax search to find out which of the moves is the
+     * best choice. The search remembers its principal variation, so the AI can ponder on the expected reply.
      *
      * @param player    int player, either 1 or 2.
-     * @param depth     The depth for the minimax algorithm.
-     * @param logic     GameLogic used for getting the remaining possible moves.
-     * @param board     The board used for getting the int[] layout.
+     * @param depth     The depth for the minimax algorithm, below the move that is chosen.
+     * @param board     The board to find a move for.
      * @return          Returns the best possible move.
      */
-    private int calculateBestMove(int player, int depth, TicTacToeGameLogic logic, GameBoardLogic board) {
-        boolean isMax;
-        int bestMoveValue;
-        int bestMove = -1;
-
-        if(player == 1){
-            bestMoveValue = -10;
-            isMax = true;
-        } else {
-            isMax = false;
-            bestMoveValue = 10;
-        }
-
-        for(int move : logic.getMoves(player)) {
-            TicTacToeBoardLogic tempBoard = new TicTacToeBoardLogic();
-            tempBoard.setBoard(board.getBoard());
-            TicTacToeGameLogic tempLogic = new TicTacToeGameLogic();
-            tempLogic.setBoard(tempBoard);
-            tempLogic.doMove(move, player);
-            int moveValue = miniMax(tempBoard, depth, !isMax);
-            if(isMax && moveValue > bestMoveValue || !isMax && moveValue < bestMoveValue){
-                bestMoveValue = moveValue;
-                bestMove = move;
-            }
-        }
-        return bestMove;
-    }
-
-    /**
-     * This method is a simple implementation of a minimax algorithm that recursively generates a search tree
-     * with evaluations of the scoreboard, and generates a score for this board.
-     *
-     * @param board     The gameBoard, used to get the int[] board layout.
-     * @param depth     the depth of the search tree (number of moves to be calculated).
-     * @param isMax     true when the current player is the maximizer, false when the current player is the minimizer.
-     * @return          Returns the score for this board.
-     */
-    private int miniMax(GameBoardLogic board, int depth, boolean isMax) {
-        int player;
-        int bestEval;
-        if(isMax){
-            bestEval = -10;
-            player = 1;
-        } else {
-            bestEval = 10;
-            player = 2;
-        }
-
-        TicTacToeGameLogic logic = new TicTacToeGameLogic();
-        logic.setBoard(board);
-
-        int score = evaluate(board);
-        if(depth == 0 || logic.gameOver() != 0) {
-            return score;
-        }
-
-        for(int move : logic.getMoves(player)){
-            TicTacToeBoardLogic newBoard = new TicTacToeBoardLogic();
-            newBoard.setBoard(board.getBoard());
-            TicTacToeGameLogic tempGame = new TicTacToeGameLogic();
-            tempGame.setBoard(newBoard);
-            tempGame.doMove(move, player);
-            if(isMax){
-                int eval = miniMax(newBoard, depth-1, false);
-                if(eval > bestEval){
-                    bestEval = eval;
-                }
-            } else {
-                int eval = miniMax(newBoard, depth-1, true);
-                if(eval < bestEval){
-                    bestEval = eval;
-                }
-            }
-        }
-        return bestEval;
+    private int calculateBestMove(int player, int depth, GameBoardLogic board) {
+        return search(new TicTacToeSearchPosition(board, player), depth + 1).getMove();
     }
 
     /**
@@ -214,5 +82,16 @@ public class TicTacToeMinimaxStrategy extends MinimaxStrategy {
             return -1;
         }
     }
-}
 
+    /**
+     * This method creates tic tac toe logic with a new board.
+     *
+     * @return the game logic.
+     */
+    @Override
+    protected GameLogic createGameLogic() {
+        TicTacToeGameLogic logic = new TicTacToeGameLogic();
+        logic.setBoard(new TicTacToeBoardLogic());
+        return logic;
+    }
+}
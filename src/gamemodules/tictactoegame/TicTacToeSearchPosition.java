@@ -0,0 +1,113 @@
+package src.gamemodules.tictactoegame;
+
+import src.gameframework.GameBoardLogic;
+import src.gameframework.aistrategies.GameLogicPosition;
+import src.gameframework.aistrategies.SearchPosition;
+
+/**
+ * Tic Tac Toe position for our negamax search.
+ */
+public class TicTacToeSearchPosition extends GameLogicPosition {
+
+    // The board is owned by this position, moves are made and taken back on it.
+    private GameBoardLogic board;
+
+    /**
+     * Constructor for TicTacToeSearchPosition. The board is copied, so the board that is passed isn't changed
+     * by the search.
+     *
+     * @param board the gameBoard that should be searched.
+     * @param player the player that is to move.
+     */
+    public TicTacToeSearchPosition(GameBoardLogic board, int player){
+        this(copyLogic(board), player);
+    }
+
+    private TicTacToeSearchPosition(TicTacToeGameLogic logic, int player){
+        super(logic, player);
+        this.board = logic.getBoard();
+    }
+
+    /**
+     * This method creates logic with a copy of a board.
+     */
+    private static TicTacToeGameLogic copyLogic(GameBoardLogic board){
+        TicTacToeBoardLogic newBoard = new TicTacToeBoardLogic();
+        newBoard.setBoard(board.getBoard());
+        TicTacToeGameLogic newLogic = new TicTacToeGameLogic();
+        newLogic.setBoard(newBoard);
+        return newLogic;
+    }
+
+    /**
+     * This method evaluates the board for the player to move.
+     *
+     * @return 1 if the player to move won, -1 if the player lost, 0 otherwise.
+     */
+    @Override
+    public int evaluate() {
+        int score = evaluateBoard(board);
+        return getPlayer() == 1 ? score : -score;
+    }
+
+    @Override
+    public SearchPosition copy() {
+        return new TicTacToeSearchPosition(board, getPlayer());
+    }
+
+    /**
+     * This method evaluates the the gameboard. A win for player 1 returns
+     * 1, a win for player 2 returns -1. A draw returns 0.
+     *
+     * @param b         the board of the game
+     * @return          the amount of points after the evaluation
+     */
+    private int evaluateBoard(GameBoardLogic b){
+        int[] board = b.getBoard();
+
+        // Check rows for a win position.
+        int rowCounter = 0;
+        for(int row = 0; row < 3; row++) {
+            if(board[rowCounter] == board[rowCounter + 1] && board[rowCounter + 1] == board[rowCounter + 2]) {
+                if(board[rowCounter] == 1) {
+                    return 1;
+                } else if(board[rowCounter] == 2) {
+                    return -1;
+                }
+            }
+            rowCounter = rowCounter + 3;
+        }
+
+        // Check columns for a win position.
+        int colCounter = 0;
+        for(int col = 0; col < 3; col++) {
+            if(board[colCounter] == board[colCounter + 3] && board[colCounter + 3] == board[colCounter + 6]) {
+                if(board[colCounter] == 1) {
+                    return 1;
+                } else if(board[colCounter] == 2) {
+                    return -1;
+                }
+            }
+            colCounter = colCounter + 1;
+        }
+
+        // Check if there is a win position for diagonals
+        if(board[0] == board[4] && board[4] == board[8]) {
+            if (board[0] == 1) {
+                return 1;
+            } else if(board[0] == 2) {
+                return -1;
+            }
+        }
+        if(board[2] == board[4] && board[4] == board[6]) {
+            if (board[2] == 1) {
+                return 1;
+            } else if(board[2] == 2) {
+                return -1;
+            }
+        }
+
+        // If it got here there is no winner yet, return 0.
+        return 0;
+    }
+}
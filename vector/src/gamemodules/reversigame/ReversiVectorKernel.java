@@ -0,0 +1,129 @@
+package src.gamemodules.reversigame;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The loops over a batch of positions with the Vector API, every lane of a vector holds one position. With AVX2 a
+ * vector holds 4 positions, with AVX-512 it holds 8. The last vector of a batch is masked, so the batch doesn't
+ * have to fill it.
+ *
+ * This class needs the jdk.incubator.vector module to compile and to run, so it isn't in the normal source tree.
+ * ReversiBatch loads it by name when the module is available, see the README.
+ */
+final class ReversiVectorKernel implements ReversiBatchKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    // All positions except the left and right column, masking them stops shifts from wrapping to the next row.
+    private static final long NOT_SIDE_COLUMNS = 0x7E7E7E7E7E7E7E7EL;
+
+    /**
+     * This method finds all valid moves of a batch of positions, with the same fill as
+     * ReversiBitboard.getMoves(long[], long[], long[], int).
+     */
+    @Override
+    public void getMoves(long[] players, long[] opponents, long[] moves, int count){
+        for(int i = 0; i < count; i += SPECIES.length()){
+            VectorMask<Long> inBatch = SPECIES.indexInRange(i, count);
+            LongVector player = LongVector.fromArray(SPECIES, players, i, inBatch);
+            LongVector opponent = LongVector.fromArray(SPECIES, opponents, i, inBatch);
+            LongVector empty = player.or(opponent).not();
+            LongVector horizontal = opponent.and(NOT_SIDE_COLUMNS);
+
+            LongVector valid = getMoves(player, horizontal, 1)
+                    .or(getMoves(player, opponent, 8))
+                    .or(getMoves(player, horizontal, 9))
+                    .or(getMoves(player, horizontal, 7));
+            valid.and(empty).intoArray(moves, i, inBatch);
+        }
+    }
+
+    /**
+     * This method finds the discs in the orientations of ReversiPatternEvaluator.getOrientations for a batch of
+     * positions. Reversing all bits is the same as reversing the bytes and mirroring every row.
+     */
+    @Override
+    public void getOrientations(long[] discs, long[][] orientations, int count){
+        for(int i = 0; i < count; i += SPECIES.length()){
+            VectorMask<Long> inBatch = SPECIES.indexInRange(i, count);
+            LongVector board = LongVector.fromArray(SPECIES, discs, i, inBatch);
+            LongVector vertical = reverseBytes(board);
+            LongVector transposed = transpose(board);
+            vertical.intoArray(orientations[0], i, inBatch);
+            mirror(board).intoArray(orientations[1], i, inBatch);
+            mirror(vertical).intoArray(orientations[2], i, inBatch);
+            transposed.intoArray(orientations[3], i, inBatch);
+            reverseBytes(transposed).intoArray(orientations[4], i, inBatch);
+        }
+    }
+
+    /**
+     * This method finds the moves in one direction and the opposite direction, without the check for an empty
+     * position at the end of the line.
+     */
+    private static LongVector getMoves(LongVector player, LongVector opponent, int dir){
+        LongVector up = opponent.and(player.lanewise(VectorOperators.LSHL, dir));
+        up = up.or(opponent.and(up.lanewise(VectorOperators.LSHL, dir)));
+        LongVector upOpen = opponent.and(opponent.lanewise(VectorOperators.LSHL, dir));
+        up = up.or(upOpen.and(up.lanewise(VectorOperators.LSHL, 2 * dir)));
+        upOpen = upOpen.and(upOpen.lanewise(VectorOperators.LSHL, 2 * dir));
+        up = up.or(upOpen.and(up.lanewise(VectorOperators.LSHL, 4 * dir)));
+
+        LongVector down = opponent.and(player.lanewise(VectorOperators.LSHR, dir));
+        down = down.or(opponent.and(down.lanewise(VectorOperators.LSHR, dir)));
+        LongVector downOpen = opponent.and(opponent.lanewise(VectorOperators.LSHR, dir));
+        down = down.or(downOpen.and(down.lanewise(VectorOperators.LSHR, 2 * dir)));
+        downOpen = downOpen.and(downOpen.lanewise(VectorOperators.LSHR, 2 * dir));
+        down = down.or(downOpen.and(down.lanewise(VectorOperators.LSHR, 4 * dir)));
+
+        return up.lanewise(VectorOperators.LSHL, dir).or(down.lanewise(VectorOperators.LSHR, dir));
+    }
+
+    /**
+     * This method reverses the rows of the board, like Long.reverseBytes.
+     */
+    private static LongVector reverseBytes(LongVector discs){
+        discs = swap(discs, 0x00FF00FF00FF00FFL, 8);
+        discs = swap(discs, 0x0000FFFF0000FFFFL, 16);
+        return discs.lanewise(VectorOperators.LSHR, 32).or(discs.lanewise(VectorOperators.LSHL, 32));
+    }
+
+    /**
+     * This method mirrors the board horizontally, like ReversiPatternEvaluator.mirror.
+     */
+    private static LongVector mirror(LongVector discs){
+        discs = swap(discs, 0x5555555555555555L, 1);
+        discs = swap(discs, 0x3333333333333333L, 2);
+        return swap(discs, 0x0F0F0F0F0F0F0F0FL, 4);
+    }
+
+    /**
+     * This method swaps the bits in the mask with the bits the shift above them.
+     */
+    private static LongVector swap(LongVector discs, long mask, int shift){
+        return discs.lanewise(VectorOperators.LSHR, shift).and(mask)
+                .or(discs.and(mask).lanewise(VectorOperators.LSHL, shift));
+    }
+
+    /**
+     * This method mirrors the board along the diagonal from the top left to the bottom right, like
+     * ReversiPatternEvaluator.transpose.
+     */
+    private static LongVector transpose(LongVector discs){
+        discs = transposeStep(discs, 0x0F0F0F0F00000000L, 28);
+        discs = transposeStep(discs, 0x3333000033330000L, 14);
+        return transposeStep(discs, 0x5500550055005500L, 7);
+    }
+
+    /**
+     * One step of the transpose: the bits in the mask change places with the bits the shift below them.
+     */
+    private static LongVector transposeStep(LongVector discs, long mask, int shift){
+        LongVector t = discs.lanewise(VectorOperators.XOR, discs.lanewise(VectorOperators.LSHL, shift)).and(mask);
+        return discs.lanewise(VectorOperators.XOR, t.lanewise(VectorOperators.XOR,
+                t.lanewise(VectorOperators.LSHR, shift)));
+    }
+}